@@ -1,16 +1,29 @@
 package system.controllers;
 
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
-import system.models.Scroll;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import system.models.DownloadAdjustment;
+import system.models.DownloadWindow;
+import system.models.ScrollPage;
+import system.models.ScrollRanking;
+import system.models.ScrollSort;
+import system.models.ScrollSummary;
 import system.models.User;
 import system.repositories.ScrollRepository;
 import system.repositories.UserRepository;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import system.services.ContentScrubber;
+import system.services.DownloadStatistics;
+import system.services.NameAutocompleteIndex;
 import system.services.ScrollService;
+import system.services.TakenNameFilter;
+import system.services.UniqueDownloaders;
 
 import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,62 +35,107 @@ public class AdminController {
     private final BCryptPasswordEncoder passwordEncoder;
     private final ScrollService scrollService;
     private ScrollRepository scrollRepository;
-
-    public AdminController(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder, ScrollService scrollService, ScrollRepository scrollRepository ) {
+    private final ContentScrubber contentScrubber;
+    private final TakenNameFilter takenNameFilter;
+    private final NameAutocompleteIndex nameAutocompleteIndex;
+    private final DownloadStatistics downloadStatistics;
+    private final UniqueDownloaders uniqueDownloaders;
+
+    // how far back the statistics page looks
+    private static final int STATISTICS_DAYS = 14;
+    private static final int STATISTICS_HOURS = 24;
+    private static final int LEADERBOARD_SIZE = 10;
+
+    // most download corrections one bulk request can carry
+    private static final int MAX_ADJUSTMENTS = 10_000;
+
+    public AdminController(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder, ScrollService scrollService, ScrollRepository scrollRepository,
+                           ContentScrubber contentScrubber, TakenNameFilter takenNameFilter,
+                           NameAutocompleteIndex nameAutocompleteIndex, DownloadStatistics downloadStatistics,
+                           UniqueDownloaders uniqueDownloaders) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.scrollService = scrollService;
         this.scrollRepository=  scrollRepository;
+        this.contentScrubber = contentScrubber;
+        this.takenNameFilter = takenNameFilter;
+        this.nameAutocompleteIndex = nameAutocompleteIndex;
+        this.downloadStatistics = downloadStatistics;
+        this.uniqueDownloaders = uniqueDownloaders;
     }
 
     @GetMapping("/admin/users")
     public String viewAllUsers(Model model) {
         List<User> users = userRepository.findAll();
-        Map<User, Integer> userScrollCounts = new HashMap<>();
-        for (User user : users) {
-            int scrollCount = (user.getScrolls() != null) ? user.getScrolls().size() : 0;
-            userScrollCounts.put(user, scrollCount);
-        }
         model.addAttribute("users", users);
         model.addAttribute("newUser", new User()); // Add an empty User object for the add form
-        model.addAttribute("userScrollCounts", userScrollCounts);
+        model.addAttribute("userScrollCounts", scrollCounts(users));
         return "admin/view_users";
     }
 
     @GetMapping("/admin/statistics")
-    public String viewAllScrolls(Model model, @RequestParam(value = "sort", required = false) String sort) {
-        List<Scroll> scrolls;
+    public String viewAllScrolls(Model model, @RequestParam(value = "sort", required = false) String sort,
+                                 @RequestParam(value = "cursor", required = false) String cursor) {
+        ScrollSort order;
 
         if ("asc".equals(sort)) {
-            scrolls = scrollRepository.findAllByOrderByDownloadsAsc();
+            order = ScrollSort.DOWNLOADS_ASC;
         } else if ("desc".equals(sort)) {
-            scrolls = scrollRepository.findAllByOrderByDownloadsDesc();
+            order = ScrollSort.DOWNLOADS_DESC;
         } else {
-            scrolls = scrollRepository.findAll(); // Default to no sorting
+            order = ScrollSort.ID; // Default to no sorting
         }
 
-        model.addAttribute("scrolls", scrolls);
+        ScrollPage page = scrollService.findPage(order, cursor);
+        model.addAttribute("scrolls", page.scrolls());
+        if (page.nextCursor() != null) {
+            model.addAttribute("nextPageUrl", ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.nextCursor())
+                    .toUriString());
+        }
+        // trends come from the hourly and daily rollups, never from the raw download events
+        model.addAttribute("downloadsByDay", downloadStatistics.dailyTotals(STATISTICS_DAYS));
+        model.addAttribute("downloadsByHour", downloadStatistics.hourlyTotals(STATISTICS_HOURS));
+        List<Integer> scrollIds = page.scrolls().stream().map(ScrollSummary::getId).toList();
+        model.addAttribute("recentDownloads", downloadStatistics.recentDownloads(scrollIds, STATISTICS_DAYS));
+        model.addAttribute("recentDownloaders", uniqueDownloaders.count(scrollIds, STATISTICS_DAYS));
+        model.addAttribute("downloaders", uniqueDownloaders.countEver(scrollIds));
+        Map<DownloadWindow, List<ScrollRanking>> leaderboard = new EnumMap<>(DownloadWindow.class);
+        for (DownloadWindow window : DownloadWindow.values()) {
+            leaderboard.put(window, scrollService.findMostDownloaded(window, LEADERBOARD_SIZE));
+        }
+        model.addAttribute("leaderboard", leaderboard);
+        // scrolls the integrity scrubber found damaged
+        model.addAttribute("corruptScrolls", contentScrubber.findCorruptScrolls());
         return "admin/view_scrolls";
     }
 
     @PostMapping("/admin/scrolls/increase/{id}")
     public String increaseDownloads(@PathVariable int id) {
-        Scroll scroll = scrollRepository.findById(id).orElseThrow();
-        scroll.setDownloads(scroll.getDownloads() + 1);
-        scrollRepository.save(scroll);
+        scrollService.adjustDownloads(List.of(new DownloadAdjustment(id, 1)));
         return "redirect:/admin/statistics?sort=asc";
     }
 
     @PostMapping("/admin/scrolls/decrease/{id}")
     public String decreaseDownloads(@PathVariable int id) {
-        Scroll scroll = scrollRepository.findById(id).orElseThrow();
-        if (scroll.getDownloads() > 0) {
-            scroll.setDownloads(scroll.getDownloads() - 1);
-        }
-        scrollRepository.save(scroll);
+        scrollService.adjustDownloads(List.of(new DownloadAdjustment(id, -1)));
         return "redirect:/admin/statistics?sort=asc";
     }
 
+    /**
+     * Corrects the download counts of many scrolls at once, e.g. when reconciling them after an incident. Takes a JSON
+     * list of {"scrollId", "delta"} pairs and applies them all or none.
+     */
+    @PostMapping("/admin/scrolls/downloads")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> adjustDownloads(@RequestBody List<DownloadAdjustment> adjustments) {
+        if (adjustments.size() > MAX_ADJUSTMENTS) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "At most " + MAX_ADJUSTMENTS + " adjustments per request"));
+        }
+        return ResponseEntity.ok(Map.of("adjusted", scrollService.adjustDownloads(adjustments)));
+    }
+
 
     @PostMapping("/admin/users/add")
     public String addUser(@ModelAttribute("newUser") User user) {
@@ -91,7 +149,10 @@ public class AdminController {
             String encodedPassword = passwordEncoder.encode(user.getPassword());
             user.setPassword(encodedPassword);
             user.setCreatedAt(LocalDateTime.now());
+            // registration checks usernames against the filter first
+            takenNameFilter.addUser(user.getUsername());
             userRepository.save(user);
+            nameAutocompleteIndex.putUser(user.getId(), user.getUsername());
         } catch (Exception e) {
         }
         return "redirect:/admin/users";
@@ -101,6 +162,7 @@ public class AdminController {
     public String deleteUser(@PathVariable int id) {
         try {
             userRepository.deleteById(id);
+            nameAutocompleteIndex.removeUser(id);
         } catch (Exception e) {
         }
         return "redirect:/admin/users";
@@ -108,14 +170,9 @@ public class AdminController {
     @GetMapping("/admin/users/search")
     public String searchUsers(@RequestParam("username") String username, Model model) {
         List<User> users = userRepository.findByUsernameContainingIgnoreCase(username);
-        Map<User, Integer> userScrollCounts = new HashMap<>();
-        for (User user : users) {
-            int scrollCount = (user.getScrolls() != null) ? user.getScrolls().size() : 0;
-            userScrollCounts.put(user, scrollCount);
-        }
         model.addAttribute("users", users);
         model.addAttribute("newUser", new User());
-        model.addAttribute("userScrollCounts", userScrollCounts);
+        model.addAttribute("userScrollCounts", scrollCounts(users));
         return "admin/view_users";
     }
     @PostMapping("/admin/users/makeAdmin/{id}")
@@ -142,9 +199,13 @@ public class AdminController {
         return "redirect:/admin/users";
     }
 
-
-
-
+    // one grouped count for the listed users instead of loading every user's scrolls
+    private Map<User, Integer> scrollCounts(List<User> users) {
+        Map<Integer, Long> counts = scrollService.countByUploader(users.stream().map(User::getId).toList());
+        Map<User, Integer> userScrollCounts = new HashMap<>();
+        for (User user : users) {
+            userScrollCounts.put(user, counts.getOrDefault(user.getId(), 0L).intValue());
+        }
+        return userScrollCounts;
+    }
 }
-
-
@@ -0,0 +1,257 @@
+package system.controllers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StreamUtils;
+import system.services.StoredContent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes stored scroll content to the response, honouring Range and If-Range so interrupted downloads can resume.
+ */
+@Component
+public class ScrollContentWriter {
+
+    // request attributes tomcat uses to serve a response body with sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // scrolls sit behind a login, so only the client may keep a copy and it has to revalidate it on every use.
+    // setting this also stops spring security from adding its default no-store header
+    private static final String CACHE_CONTROL = "private, no-cache";
+
+    /**
+     * Answers 304 when the client's cached copy is still current, checking If-None-Match against the content hash
+     * and otherwise If-Modified-Since, so it can be called before any stored content is loaded.
+     *
+     * @return true if a 304 was written and nothing else should be sent
+     */
+    public boolean checkNotModified(HttpServletRequest request, HttpServletResponse response, String hash,
+                                    long lastModified) {
+        if (hash == null || !(HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod()))) {
+            return false;
+        }
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        String matchedTag = null;
+        if (ifNoneMatch != null) {
+            matchedTag = matchingTag(ifNoneMatch, hash);
+            if (matchedTag == null) {
+                return false;
+            }
+        } else if (!notModifiedSince(request, lastModified)) {
+            return false;
+        }
+
+        response.setStatus(HttpStatus.NOT_MODIFIED.value());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        if (matchedTag != null) {
+            response.setHeader(HttpHeaders.ETAG, matchedTag);
+        }
+        if (lastModified >= 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+        return true;
+    }
+
+    /**
+     * @param hash         SHA-256 of the content, used to build the entity tag
+     * @param lastModified last modification time in epoch millis, or -1 if unknown
+     * @return true if the response carries the content from its first byte, either whole or as a range starting at 0;
+     *         always false for HEAD, which only gets the headers
+     */
+    public boolean write(HttpServletRequest request, HttpServletResponse response, StoredContent content,
+                      MediaType contentType, String hash, long lastModified) throws IOException {
+        // compressed content is sent as is to clients that accept gzip, everyone else gets it decompressed
+        boolean sendCompressed = content.isCompressed() && acceptsGzip(request);
+        Resource resource = sendCompressed ? content.resource() : content.decoded();
+        // each representation needs its own strong tag, otherwise ranges could mix compressed and plain bytes
+        String etag = "\"" + hash + (sendCompressed ? "-" + StoredContent.GZIP : "") + "\"";
+
+        long length = resource.contentLength();
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        if (content.isCompressed()) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (sendCompressed) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, StoredContent.GZIP);
+        }
+        if (lastModified >= 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            // the headers a full GET would get, without reading the content or counting a download
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(contentType.toString());
+            response.setContentLengthLong(length);
+            return false;
+        }
+
+        List<HttpRange> ranges = requestedRanges(request, etag, lastModified);
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(contentType.toString());
+            send(request, response, resource, 0, length);
+            return true;
+        }
+
+        List<ResourceRegion> regions;
+        try {
+            regions = HttpRange.toResourceRegions(ranges, resource);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return false;
+        }
+
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        if (regions.size() == 1) {
+            ResourceRegion region = regions.get(0);
+            response.setContentType(contentType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(region, length));
+            send(request, response, resource, region.getPosition(), region.getCount());
+            return region.getPosition() == 0;
+        }
+
+        // several ranges go back as a multipart/byteranges body
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        OutputStream out = response.getOutputStream();
+        for (ResourceRegion region : regions) {
+            print(out, "\r\n--" + boundary + "\r\n");
+            print(out, HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n");
+            print(out, HttpHeaders.CONTENT_RANGE + ": " + contentRange(region, length) + "\r\n\r\n");
+            try (InputStream in = resource.getInputStream()) {
+                StreamUtils.copyRange(in, out, region.getPosition(), region.getPosition() + region.getCount() - 1);
+            }
+        }
+        print(out, "\r\n--" + boundary + "--");
+        return regions.stream().anyMatch(region -> region.getPosition() == 0);
+    }
+
+    /**
+     * Ranges to serve, or none when the whole content should be sent. An If-Range validator that no longer matches
+     * means the client holds a stale partial copy, so it gets the full content instead.
+     */
+    private List<HttpRange> requestedRanges(HttpServletRequest request, String etag, long lastModified) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null || !ifRangeMatches(request, etag, lastModified)) {
+            return List.of();
+        }
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            // a malformed Range header is ignored rather than rejected
+            return List.of();
+        }
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase(StoredContent.GZIP)) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The tag in If-None-Match that matches either representation of the content, or null if none does. Both the
+     * plain and the gzip tag name the same bytes, so a client holding either copy is up to date.
+     */
+    private static String matchingTag(String ifNoneMatch, String hash) {
+        String plain = "\"" + hash + "\"";
+        String compressed = "\"" + hash + "-" + StoredContent.GZIP + "\"";
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return plain;
+            }
+            // If-None-Match uses the weak comparison
+            String opaque = tag.startsWith("W/") ? tag.substring(2) : tag;
+            if (opaque.equals(plain) || opaque.equals(compressed)) {
+                return opaque;
+            }
+        }
+        return null;
+    }
+
+    private static boolean notModifiedSince(HttpServletRequest request, long lastModified) {
+        if (lastModified < 0) {
+            return false;
+        }
+        try {
+            long since = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            return since >= 0 && lastModified / 1000 <= since / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // If-Range requires a strong comparison, so weak tags never match
+            return etag.equals(ifRange);
+        }
+        try {
+            long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return lastModified >= 0 && date / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void send(HttpServletRequest request, HttpServletResponse response, Resource resource, long start, long count)
+            throws IOException {
+        response.setContentLengthLong(count);
+        if (resource.isFile() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // let tomcat copy the file to the socket itself (FileChannel.transferTo) instead of through the heap
+            request.setAttribute(SENDFILE_FILENAME, resource.getFile().getAbsolutePath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        if (count == 0) {
+            return;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            StreamUtils.copyRange(in, response.getOutputStream(), start, start + count - 1);
+        }
+    }
+
+    private static String contentRange(ResourceRegion region, long length) {
+        long end = region.getPosition() + region.getCount() - 1;
+        return "bytes " + region.getPosition() + "-" + end + "/" + length;
+    }
+
+    private static void print(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.US_ASCII));
+    }
+}
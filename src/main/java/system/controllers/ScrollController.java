@@ -1,21 +1,41 @@
 package system.controllers;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.*;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import system.models.DownloadWindow;
 import system.models.Scroll;
+import system.models.ScrollPage;
+import system.models.ScrollRanking;
+import system.models.ScrollSearch;
+import system.models.ScrollSort;
+import system.models.UploadSession;
 import system.models.User;
+import system.services.NameAutocompleteIndex;
 import system.services.ScrollService;
+import system.services.StoredContent;
+import system.services.UploadOffsetMismatchException;
+import system.services.UploadSessionLimitException;
+import system.services.UploadSessionNotFoundException;
+import system.services.UploadSessionService;
+import system.services.UploadTooLargeException;
 import system.services.UserService;
 
 import java.io.IOException;
+import java.net.URI;
 import java.security.Principal;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Controller
@@ -24,15 +44,53 @@ public class ScrollController {
 
     private final UserService userService;
     private final ScrollService scrollService;
+    private final ScrollContentWriter scrollContentWriter;
+    private final UploadSessionService uploadSessionService;
+    private final NameAutocompleteIndex nameAutocompleteIndex;
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
 
+    // response header with the number of bytes an upload session has received
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+
+    // most suggestions one autocomplete request can ask for
+    private static final int MAX_SUGGESTIONS = 25;
+
+    // most scrolls one leaderboard request can ask for
+    private static final int MAX_RANKINGS = 50;
+
 
     @GetMapping("/")
-    public String getIndex(Model model) {
-        model.addAttribute("scrolls", scrollService.findAll());
+    public String getIndex(@RequestParam(required = false) String cursor, Model model) {
+        addPage(model, scrollService.findPage(ScrollSort.RECENT, cursor));
         return "index";
     }
 
+    /**
+     * Scroll names and uploaders starting with the typed text, for the search form to offer on every keystroke.
+     */
+    @GetMapping("/autocomplete")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getAutocomplete(@RequestParam("q") String prefix,
+                                                               @RequestParam(defaultValue = "10") int limit) {
+        if (prefix.isBlank()) {
+            return ResponseEntity.ok(Map.of("scrolls", List.of(), "uploaders", List.of()));
+        }
+        int count = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        return ResponseEntity.ok(Map.of(
+                "scrolls", nameAutocompleteIndex.completeScrollName(prefix, count),
+                "uploaders", nameAutocompleteIndex.completeUsername(prefix, count)));
+    }
+
+    /**
+     * The most downloaded scrolls over the last hour, day or all time, ranked from memory without scanning the scrolls.
+     */
+    @GetMapping("/leaderboard")
+    @ResponseBody
+    public ResponseEntity<List<ScrollRanking>> getLeaderboard(@RequestParam(defaultValue = "DAY") DownloadWindow window,
+                                                              @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(scrollService.findMostDownloaded(window, Math.max(1, Math.min(limit, MAX_RANKINGS))));
+    }
+
     @GetMapping("/scroll/create")
     public String getCreateScroll(Model model) {
         model.addAttribute("scroll", new Scroll());
@@ -48,13 +106,9 @@ public class ScrollController {
 
         scroll.setUser(user);
 
-        if (scroll.getName().isEmpty()) {
-            model.addAttribute("error", "Name is empty");
-            return "scroll_create";
-        }
-
-        if (scrollService.nameExists(scroll.getName())) {
-            model.addAttribute("error", "Name already exists");
+        String nameError = nameError(scroll.getName());
+        if (nameError != null) {
+            model.addAttribute("error", nameError);
             return "scroll_create";
         }
 
@@ -63,7 +117,6 @@ public class ScrollController {
             return "scroll_create";
         }
 
-        scroll.setContent(scroll.getContentFile().getBytes());
         scroll.setFileName(scroll.getContentFile().getOriginalFilename());
         scroll.setContentType(scroll.getContentFile().getContentType());
 
@@ -71,9 +124,140 @@ public class ScrollController {
         return "redirect:/";
     }
 
+    /**
+     * Starts a resumable upload. The file is then sent with PUT requests carrying the offset each chunk starts at,
+     * and becomes a scroll once the session is finished.
+     */
+    @PostMapping("/scroll/uploads")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> postUploadSession(@RequestParam String name, @RequestParam String fileName,
+                                                                 @RequestParam(required = false) String contentType,
+                                                                 @RequestParam(required = false) String password,
+                                                                 Principal principal) throws IOException {
+        User user = userService.findByUsername(principal.getName());
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        String nameError = nameError(name);
+        if (nameError != null) {
+            return ResponseEntity.badRequest().body(Map.of("error", nameError));
+        }
+
+        try {
+            UploadSession session = uploadSessionService.create(user, name, fileName,
+                    contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE, password);
+            return ResponseEntity.created(URI.create("/scroll/uploads/" + session.getId()))
+                    .header(UPLOAD_OFFSET, "0")
+                    .body(uploadStatus(session.getId(), 0));
+        } catch (UploadSessionLimitException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(Map.of("error", "At most " + e.getMaxSessions() + " uploads can be open at once"));
+        }
+    }
+
+    // where a client that lost its connection should resume
+    @GetMapping("/scroll/uploads/{id}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getUploadSession(@PathVariable String id, Principal principal) {
+        return findUploadSession(id, principal)
+                .map(session -> ResponseEntity.ok()
+                        .header(UPLOAD_OFFSET, String.valueOf(session.getReceivedBytes()))
+                        .body(uploadStatus(id, session.getReceivedBytes())))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/scroll/uploads/{id}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> putUploadChunk(@PathVariable String id, @RequestParam long offset,
+                                                              HttpServletRequest request, Principal principal)
+            throws IOException {
+        Optional<UploadSession> session = findUploadSession(id, principal);
+        if (session.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            long next = uploadSessionService.append(session.get(), offset, request.getInputStream());
+            return ResponseEntity.ok().header(UPLOAD_OFFSET, String.valueOf(next)).body(uploadStatus(id, next));
+        } catch (UploadOffsetMismatchException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(UPLOAD_OFFSET, String.valueOf(e.getExpectedOffset()))
+                    .body(uploadStatus(id, e.getExpectedOffset()));
+        } catch (UploadSessionNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(Map.of("error", "File is larger than " + e.getMaxSize() + " bytes"));
+        }
+    }
+
+    @PostMapping("/scroll/uploads/{id}/finish")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> postFinishUpload(@PathVariable String id, Principal principal) {
+        Optional<UploadSession> session = findUploadSession(id, principal);
+        if (session.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // the name is checked again, someone else may have taken it while the upload was running
+        String nameError = nameError(session.get().getName());
+        if (nameError != null) {
+            return ResponseEntity.badRequest().body(Map.of("error", nameError));
+        }
+        if (session.get().getReceivedBytes() == 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "File is empty"));
+        }
+
+        try {
+            Scroll scroll = uploadSessionService.finish(session.get());
+            return ResponseEntity.created(URI.create("/scroll/" + scroll.getId() + "/download"))
+                    .body(Map.of("scrollId", scroll.getId()));
+        } catch (UploadSessionNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (DataIntegrityViolationException e) {
+            // the name was taken between the check above and the save
+            if (scrollService.nameExists(session.get().getName())) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Name already exists"));
+            }
+            throw e;
+        }
+    }
+
+    @DeleteMapping("/scroll/uploads/{id}")
+    @ResponseBody
+    public ResponseEntity<Void> deleteUploadSession(@PathVariable String id, Principal principal) throws IOException {
+        Optional<UploadSession> session = findUploadSession(id, principal);
+        if (session.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        uploadSessionService.abort(session.get());
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Downloads an unprotected scroll. GET lets download managers and browsers resume with Range requests, but a
+     * password must never travel in a URL, so protected scrolls are only served by the POST mapping.
+     */
+    @GetMapping("/scroll/{id}/download")
+    @ResponseBody
+    public Object getDownloadScroll(@PathVariable int id, HttpServletRequest request, HttpServletResponse response,
+                                    Principal principal) throws IOException {
+        Optional<Scroll> optionalScroll = scrollService.findById(id);
+        if (optionalScroll.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Scroll scroll = optionalScroll.get();
+        if (scroll.getPassword() != null && !scroll.getPassword().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.METHOD_NOT_ALLOWED).header(HttpHeaders.ALLOW, "POST").build();
+        }
+        return download(scroll, request, response, principal);
+    }
+
     @PostMapping("/scroll/{id}/download")
     @ResponseBody
-    public Object getDownloadScroll(@PathVariable int id, @RequestParam(required = false) String password, Model model) {
+    public Object postDownloadScroll(@PathVariable int id, @RequestParam(required = false) String password, Model model,
+                                     HttpServletRequest request, HttpServletResponse response,
+                                     Principal principal) throws IOException {
         Optional<Scroll> optionalScroll = scrollService.findById(id);
         if (optionalScroll.isPresent()) {
             Scroll scroll = optionalScroll.get();
@@ -81,22 +265,44 @@ public class ScrollController {
             if (scroll.getPassword() != null && !scroll.getPassword().isEmpty()) {
                 if (!scroll.getPassword().equals(password)) {
                     model.addAttribute("error", "Wrong password");
-                    model.addAttribute("scrolls", scrollService.findAll());
+                    ScrollPage page = scrollService.findPage(ScrollSort.RECENT, null);
+                    model.addAttribute("scrolls", page.scrolls());
+                    if (page.nextCursor() != null) {
+                        model.addAttribute("nextPageUrl", "/?cursor=" + page.nextCursor());
+                    }
                     return new ModelAndView("index", model.asMap());
                 }
             }
 
-            scroll.setDownloads(scroll.getDownloads() + 1);
-            scrollService.save(scroll);
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.valueOf(scroll.getContentType()))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + scroll.getFileName() + "\"")
-                    .body(scroll.getContent());
+            return download(scroll, request, response, principal);
         }
         return ResponseEntity.notFound().build();
     }
 
+    private Object download(Scroll scroll, HttpServletRequest request, HttpServletResponse response,
+                            Principal principal) throws IOException {
+        long lastModified = scroll.getUpdatedAt() != null
+                ? scroll.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+
+        // a revalidated cached copy is not a new download, and needs nothing from the content store
+        if (scrollContentWriter.checkNotModified(request, response, scroll.getContentHash(), lastModified)) {
+            return null;
+        }
+
+        Optional<StoredContent> content = scrollService.findContent(scroll);
+        if (content.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + scroll.getFileName() + "\"");
+        // only a response that starts at the first byte begins a download, later ranges resume one already counted
+        if (scrollContentWriter.write(request, response, content.get(), MediaType.valueOf(scroll.getContentType()),
+                scroll.getContentHash(), lastModified)) {
+            scrollService.recordDownload(scroll, principal != null ? principal.getName() : null);
+        }
+        return null;
+    }
+
     @GetMapping("/scroll/{id}/edit")
     public String getEditScroll(@PathVariable int id, Model model, Principal principal) {
         Optional<Scroll> optionalScroll = scrollService.findById(id);
@@ -140,8 +346,8 @@ public class ScrollController {
 
             if (!scroll.getContentFile().isEmpty()) {
                 oldScroll.setFileName(scroll.getContentFile().getOriginalFilename());
-                oldScroll.setContent(scroll.getContentFile().getBytes());
                 oldScroll.setContentType(scroll.getContentFile().getContentType());
+                oldScroll.setContentFile(scroll.getContentFile());
             }
 
             scrollService.save(oldScroll);
@@ -162,23 +368,75 @@ public class ScrollController {
         return "redirect:/";
     }
 
+    // reason a new scroll can't use the name, or null if it can
+    private String nameError(String name) {
+        if (name == null || name.isEmpty()) {
+            return "Name is empty";
+        }
+        if (scrollService.nameExists(name)) {
+            return "Name already exists";
+        }
+        return null;
+    }
+
+    // sessions are only visible to the user who started them
+    private Optional<UploadSession> findUploadSession(String id, Principal principal) {
+        User user = userService.findByUsername(principal.getName());
+        if (user == null) {
+            return Optional.empty();
+        }
+        return uploadSessionService.find(id, user);
+    }
+
+    private static Map<String, Object> uploadStatus(String id, long offset) {
+        return Map.of("id", id, "offset", offset);
+    }
+
     @GetMapping("/scroll/search")
     public String searchScroll(@RequestParam(value = "uploaderId", required = false) Integer uploaderId,
                                @RequestParam(value = "scrollId", required = false) Integer scrollId,
                                @RequestParam(value = "name", required = false) String name,
                                @RequestParam(value = "startDate", required = false) String startDate,
                                @RequestParam(value = "endDate", required = false) String endDate,
+                               @RequestParam(value = "text", required = false) String text,
+                               @RequestParam(value = "minDownloads", required = false) Integer minDownloads,
+                               @RequestParam(value = "maxDownloads", required = false) Integer maxDownloads,
+                               @RequestParam(value = "passwordProtected", required = false) Boolean passwordProtected,
+                               @RequestParam(value = "sort", defaultValue = "RECENT") ScrollSort sort,
+                               @RequestParam(value = "cursor", required = false) String cursor,
                                Model model) {
 
         LocalDateTime start = startDate != null && !startDate.isEmpty() ? LocalDateTime.parse(startDate, formatter) : null;
         LocalDateTime end = endDate != null && !endDate.isEmpty() ? LocalDateTime.parse(endDate, formatter) : null;
 
-        List<Scroll> scrolls = scrollService.searchScrolls(uploaderId, scrollId, name, start, end);
-        if (scrolls.isEmpty()){
+        ScrollSearch search = ScrollSearch.builder()
+                .uploaderId(uploaderId)
+                .scrollId(scrollId)
+                .name(name)
+                .createdFrom(start)
+                .createdTo(end)
+                .text(text)
+                .minDownloads(minDownloads)
+                .maxDownloads(maxDownloads)
+                .passwordProtected(passwordProtected)
+                .sort(sort)
+                .build();
+        ScrollPage page = scrollService.searchScrolls(search, cursor);
+        if (page.scrolls().isEmpty() && cursor == null){
             return "redirect:/";
         }
-        model.addAttribute("scrolls", scrolls);
+        addPage(model, page);
 
         return "index";  // Or wherever the scroll list is displayed
     }
+
+    // the link to the next page keeps the current query and only swaps the cursor
+    private static void addPage(Model model, ScrollPage page) {
+        model.addAttribute("scrolls", page.scrolls());
+        if (page.nextCursor() != null) {
+            model.addAttribute("nextPageUrl", ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.nextCursor())
+                    .toUriString());
+        }
+    }
 }
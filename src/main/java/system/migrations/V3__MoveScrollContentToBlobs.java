@@ -0,0 +1,145 @@
+package system.migrations;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import system.models.ContentChunk;
+import system.services.ContentChunker;
+import system.services.FileSystemContentStore;
+import system.services.StagedContent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Moves the bytes of scrolls stored before the content store existed out of scroll.content and into blobs, the same
+ * way an upload is committed: one reference-counted blob per distinct SHA-256, with its chunk checksums, and the bytes
+ * in the configured store. Content is moved as it is, without compressing it.
+ * <p>
+ * Plain JDBC on the migration's connection, since the JPA repositories only exist once migrations have run. Spring
+ * hands this bean to Flyway, which runs it between V2 (the content store tables) and V4 (dropping the old column).
+ */
+@Component
+public class V3__MoveScrollContentToBlobs extends BaseJavaMigration {
+
+    private final ContentChunker contentChunker;
+    private final ObjectProvider<FileSystemContentStore> fileSystemContentStore;
+
+    public V3__MoveScrollContentToBlobs(ContentChunker contentChunker,
+                                        ObjectProvider<FileSystemContentStore> fileSystemContentStore) {
+        this.contentChunker = contentChunker;
+        this.fileSystemContentStore = fileSystemContentStore;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        List<Integer> ids = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "select id from scroll where content is not null and content_hash is null")) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        for (int id : ids) {
+            move(connection, id);
+        }
+    }
+
+    // one scroll at a time, so only one scroll's bytes are ever on local disk and none are held in memory
+    private void move(Connection connection, int scrollId) throws SQLException, IOException {
+        Path file = Files.createTempFile("scroll-", ".migrate");
+        try {
+            StagedContent staged = stage(connection, scrollId, file);
+            if (update(connection, "update content_blob set ref_count = ref_count + 1 where hash = ?",
+                    staged.sha256()) == 0) {
+                storeBlob(connection, staged);
+            }
+            update(connection, "update scroll set content_hash = ?, content_length = ? where id = ?",
+                    staged.sha256(), staged.length(), scrollId);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private StagedContent stage(Connection connection, int scrollId, Path file) throws SQLException, IOException {
+        try (PreparedStatement select = connection.prepareStatement("select content from scroll where id = ?")) {
+            select.setInt(1, scrollId);
+            try (ResultSet rs = select.executeQuery()) {
+                rs.next();
+                try (DigestInputStream in = new DigestInputStream(rs.getBinaryStream(1), sha256())) {
+                    long length = Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+                    return new StagedContent(file, length, HexFormat.of().formatHex(in.getMessageDigest().digest()));
+                }
+            }
+        }
+    }
+
+    private void storeBlob(Connection connection, StagedContent staged) throws SQLException, IOException {
+        // index first, the filesystem store moves the file away
+        for (ContentChunk chunk : contentChunker.index(staged.sha256(), staged.file())) {
+            update(connection, "insert into content_chunk (id, blob_hash, chunk_index, chunk_offset, length, checksum) "
+                            + "values (next value for content_chunk_seq, ?, ?, ?, ?, ?)",
+                    chunk.getBlobHash(), chunk.getChunkIndex(), chunk.getChunkOffset(), chunk.getLength(),
+                    chunk.getChecksum());
+        }
+
+        FileSystemContentStore files = fileSystemContentStore.getIfAvailable();
+        if (files != null) {
+            files.write(staged.sha256(), staged);
+        } else {
+            writeChunks(connection, staged);
+        }
+
+        update(connection, "insert into content_blob (hash, length, encoding, stored_length, ref_count, created_at, "
+                        + "verified_at, corrupt) values (?, ?, null, ?, 1, current_timestamp, null, false)",
+                staged.sha256(), staged.length(), staged.length());
+    }
+
+    // the layout DatabaseContentStore reads: content_blob_data rows of at most one chunk each
+    private void writeChunks(Connection connection, StagedContent staged) throws SQLException, IOException {
+        try (InputStream in = Files.newInputStream(staged.file());
+             PreparedStatement insert = connection.prepareStatement(
+                     "insert into content_blob_data (id, hash, chunk_index, length, data) "
+                             + "values (next value for content_blob_data_seq, ?, ?, ?, ?)")) {
+            int chunkIndex = 0;
+            byte[] chunk;
+            while ((chunk = in.readNBytes(contentChunker.getChunkSize())).length > 0) {
+                insert.setString(1, staged.sha256());
+                insert.setInt(2, chunkIndex++);
+                insert.setInt(3, chunk.length);
+                insert.setBytes(4, chunk);
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    private static int update(Connection connection, String sql, Object... args) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < args.length; i++) {
+                statement.setObject(i + 1, args[i]);
+            }
+            return statement.executeUpdate();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
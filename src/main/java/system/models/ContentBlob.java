@@ -0,0 +1,41 @@
+package system.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stored file, shared by every scroll whose content has the same SHA-256.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+@Builder
+@AllArgsConstructor
+@Table(indexes = @Index(name = "idx_content_blob_verified_at", columnList = "verified_at"))
+public class ContentBlob {
+
+    @Id
+    String hash;
+
+    long length;
+
+    // "gzip" when the bytes are stored compressed, null when stored as uploaded
+    String encoding;
+
+    long storedLength;
+
+    // number of scrolls pointing at this blob, the bytes are removed when it reaches zero
+    int refCount;
+
+    LocalDateTime createdAt;
+
+    // last time the integrity scrubber re-read the bytes, null until it first gets to this blob
+    LocalDateTime verifiedAt;
+
+    // set when a chunk no longer matches the checksum recorded at upload
+    boolean corrupt;
+}
@@ -0,0 +1,32 @@
+package system.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * One chunk of a content blob's bytes when scrolls are kept in the database. Chunks keep every read and write to a
+ * bounded buffer no matter how large the scroll is.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"hash", "chunk_index"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContentBlobData {
+
+    @Id
+    @GeneratedValue
+    int id;
+
+    // SHA-256 of the whole blob, same as ContentBlob.hash
+    @Column(nullable = false)
+    String hash;
+
+    int chunkIndex;
+
+    int length;
+
+    @Lob
+    private byte[] data;
+}
@@ -0,0 +1,35 @@
+package system.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Index entry for one fixed-size chunk of a stored blob, used to verify and read content chunk by chunk.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"blob_hash", "chunk_index"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+@Builder
+@AllArgsConstructor
+public class ContentChunk {
+
+    @Id
+    @GeneratedValue
+    int id;
+
+    @Column(nullable = false)
+    String blobHash;
+
+    int chunkIndex;
+
+    // position of the chunk within the stored (possibly compressed) bytes
+    long chunkOffset;
+
+    int length;
+
+    // hex encoded SHA-256 of the chunk
+    String checksum;
+}
@@ -0,0 +1,7 @@
+package system.models;
+
+/**
+ * A correction to one scroll's download count, positive or negative.
+ */
+public record DownloadAdjustment(int scrollId, int delta) {
+}
@@ -0,0 +1,9 @@
+package system.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Downloads in one hour or day, starting at start.
+ */
+public record DownloadBucket(LocalDateTime start, long downloads, long bytes) {
+}
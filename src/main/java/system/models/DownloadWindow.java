@@ -0,0 +1,10 @@
+package system.models;
+
+/**
+ * Periods the download leaderboard can rank scrolls over.
+ */
+public enum DownloadWindow {
+    HOUR,
+    DAY,
+    ALL_TIME
+}
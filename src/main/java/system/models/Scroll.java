@@ -16,6 +16,13 @@ import java.time.LocalDateTime;
 @ToString
 @Builder
 @AllArgsConstructor
+// listings are paged by seeking on (sort key, id), searches also narrow by creation date. The schema itself comes from
+// the migrations in db/migration, these only document it
+@Table(indexes = {
+        @Index(name = "idx_scroll_updated_at_id", columnList = "updated_at, id"),
+        @Index(name = "idx_scroll_downloads_id", columnList = "downloads, id"),
+        @Index(name = "idx_scroll_created_at", columnList = "created_at")
+})
 public class Scroll {
 
     @Id
@@ -25,15 +32,26 @@ public class Scroll {
     @Column(unique = true, nullable = false)
     String name;
 
-    @Lob
-    private byte[] content;
+    // lower(name), filled in by the database and indexed for case-insensitive lookups
+    @Column(insertable = false, updatable = false)
+    String nameKey;
 
+    // the file while a scroll is being created. Stored bytes are a content blob, found by contentHash, so loading a
+    // scroll never loads them
     @Transient
     private MultipartFile contentFile;
 
+    long contentLength;
+
+    // hex encoded SHA-256 of the content, computed while the upload is streamed
+    String contentHash;
+
     String fileName;
     String contentType;
 
+    // only ever changed by relative updates (DownloadCounter, admin adjustments), so saving a scroll that was read
+    // earlier cannot overwrite downloads counted in the meantime
+    @Column(updatable = false)
     int downloads;
 
     // tracks creation time
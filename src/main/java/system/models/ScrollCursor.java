@@ -0,0 +1,41 @@
+package system.models;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a listing page: its sort key and id. The next page starts strictly after it, so the
+ * database seeks straight to it through the index instead of counting past an offset.
+ */
+public record ScrollCursor(ScrollSort sort, String key, int id) {
+
+    public static ScrollCursor after(ScrollSort sort, ScrollSummary last) {
+        return new ScrollCursor(sort, sort.keyOf(last), last.getId());
+    }
+
+    public String encode() {
+        String value = sort.name() + "|" + key + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the cursor, or null when there is none or it is unreadable or was made for another order, in which
+     * case the listing starts from the first page
+     */
+    public static ScrollCursor decode(String cursor, ScrollSort sort) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 3 || !parts[0].equals(sort.name())) {
+                return null;
+            }
+            sort.parseKey(parts[1]);
+            return new ScrollCursor(sort, parts[1], Integer.parseInt(parts[2]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            return null;
+        }
+    }
+}
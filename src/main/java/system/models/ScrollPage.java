@@ -0,0 +1,13 @@
+package system.models;
+
+import java.util.List;
+
+/**
+ * One page of a scroll listing, with the cursor for the page after it or null on the last page.
+ */
+public record ScrollPage(List<ScrollSummary> scrolls, String nextCursor) {
+
+    public static ScrollPage empty() {
+        return new ScrollPage(List.of(), null);
+    }
+}
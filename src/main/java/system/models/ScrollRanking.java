@@ -0,0 +1,7 @@
+package system.models;
+
+/**
+ * A scroll's place on the download leaderboard. Downloads is an estimate that can overcount, never undercount.
+ */
+public record ScrollRanking(int id, String name, long downloads) {
+}
@@ -0,0 +1,38 @@
+package system.models;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Filters and order for a scroll listing. Every filter that is set has to match, unset filters match every scroll.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+@Builder
+@AllArgsConstructor
+public class ScrollSearch {
+
+    Integer uploaderId;
+    Integer scrollId;
+    String name;
+    LocalDateTime createdFrom;
+    LocalDateTime createdTo;
+    Integer minDownloads;
+    Integer maxDownloads;
+
+    // true for scrolls behind a password only, false for open scrolls only
+    Boolean passwordProtected;
+
+    // words that have to appear in the scroll's text
+    String text;
+
+    // restricts the results to these scrolls, e.g. the name index's matches
+    Collection<Integer> ids;
+
+    @Builder.Default
+    ScrollSort sort = ScrollSort.RECENT;
+}
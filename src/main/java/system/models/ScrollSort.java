@@ -0,0 +1,43 @@
+package system.models;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Orders scroll listings can be paged in. Every order ends with the id so rows with equal keys still have a fixed
+ * position, which keyset paging relies on.
+ */
+@Getter
+public enum ScrollSort {
+
+    RECENT("updatedAt", false),
+    ID("id", true),
+    DOWNLOADS_ASC("downloads", true),
+    DOWNLOADS_DESC("downloads", false);
+
+    private final String property;
+    private final boolean ascending;
+
+    ScrollSort(String property, boolean ascending) {
+        this.property = property;
+        this.ascending = ascending;
+    }
+
+    // the sort key of a row, as kept in a cursor
+    public String keyOf(ScrollSummary summary) {
+        return switch (this) {
+            case RECENT -> String.valueOf(summary.getUpdatedAt());
+            case ID -> String.valueOf(summary.getId());
+            case DOWNLOADS_ASC, DOWNLOADS_DESC -> String.valueOf(summary.getDownloads());
+        };
+    }
+
+    // a cursor key read back as the type of the sort property
+    public Comparable<?> parseKey(String key) {
+        return switch (this) {
+            case RECENT -> LocalDateTime.parse(key);
+            case ID, DOWNLOADS_ASC, DOWNLOADS_DESC -> Integer.valueOf(key);
+        };
+    }
+}
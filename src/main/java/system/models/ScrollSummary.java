@@ -0,0 +1,51 @@
+package system.models;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns scroll listings show, selected straight from the scroll table without loading the uploader entity or
+ * the scroll's password.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode(of = "id")
+public class ScrollSummary {
+
+    private final int id;
+    private final String name;
+    private final String uploader;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final int downloads;
+    private final boolean passwordProtected;
+
+    @Setter
+    private String formattedCreatedAt;
+
+    @Setter
+    private String formattedUpdatedAt;
+
+    public ScrollSummary(int id, String name, String uploader, LocalDateTime createdAt, LocalDateTime updatedAt,
+                         int downloads, boolean passwordProtected) {
+        this.id = id;
+        this.name = name;
+        this.uploader = uploader;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.downloads = downloads;
+        this.passwordProtected = passwordProtected;
+    }
+
+    // for results that were loaded as full entities
+    public static ScrollSummary of(Scroll scroll) {
+        return new ScrollSummary(scroll.getId(), scroll.getName(),
+                scroll.getUser() != null ? scroll.getUser().getUsername() : null,
+                scroll.getCreatedAt(), scroll.getUpdatedAt(), scroll.getDownloads(),
+                scroll.getPassword() != null && !scroll.getPassword().isEmpty());
+    }
+}
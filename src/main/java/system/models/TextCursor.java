@@ -0,0 +1,37 @@
+package system.models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of a match in the text index's ranking: its relevance score and scroll id. The next page of a text search
+ * starts strictly after it, so the index seeks straight to it instead of collecting every match before it.
+ */
+public record TextCursor(float score, int id) {
+
+    private static final String PREFIX = "TEXT";
+
+    public String encode() {
+        String value = PREFIX + "|" + score + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the cursor, or null when there is none or it is unreadable or was made for a listing without text, in
+     * which case the search starts from the best match
+     */
+    public static TextCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 3 || !parts[0].equals(PREFIX)) {
+                return null;
+            }
+            return new TextCursor(Float.parseFloat(parts[1]), Integer.parseInt(parts[2]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package system.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A scroll upload that arrives in chunks. The bytes received so far sit in a file named after the session until the
+ * upload is finished and turned into a scroll.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+@Builder
+@AllArgsConstructor
+public class UploadSession {
+
+    @Id
+    String id;
+
+    // the scroll the upload will become
+    String name;
+    String fileName;
+    String contentType;
+    String password;
+
+    // bytes written so far, which is also the offset the next chunk has to start at
+    long receivedBytes;
+
+    LocalDateTime createdAt;
+
+    LocalDateTime updatedAt;
+
+    @ManyToOne
+    @JoinColumn(name = "user_id", referencedColumnName = "id", nullable = false)
+    User user;
+}
@@ -24,6 +24,11 @@ public class User {
     @Column(unique = true, nullable = false)
     String username;
 
+    // lower(username), filled in by the database and indexed for case-insensitive lookups
+    @JsonIgnore
+    @Column(insertable = false, updatable = false)
+    String usernameKey;
+
     @JsonIgnore
     String password;
 
@@ -41,8 +46,9 @@ public class User {
     boolean admin;
 
     @JsonIgnore
-    //Changed so that admins can view the number of scrolls
-    @OneToMany(mappedBy = "user", fetch = FetchType.EAGER)
+    // loaded only when asked for, the admin pages count scrolls with a grouped query instead
+    @ToString.Exclude
+    @OneToMany(mappedBy = "user", fetch = FetchType.LAZY)
     List<Scroll> scrolls;
 
     // this column stores emoji unicodes
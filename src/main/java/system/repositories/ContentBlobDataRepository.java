@@ -0,0 +1,24 @@
+package system.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import system.models.ContentBlobData;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ContentBlobDataRepository extends JpaRepository<ContentBlobData, Integer> {
+    Optional<ContentBlobData> findByHashAndChunkIndex(String hash, int chunkIndex);
+
+    // lengths only, so the layout of a blob can be known without loading any of its bytes
+    @Query("select d.length from ContentBlobData d where d.hash = :hash order by d.chunkIndex")
+    List<Integer> findChunkLengths(@Param("hash") String hash);
+
+    @Modifying
+    @Query("delete from ContentBlobData d where d.hash = :hash")
+    int deleteByHash(@Param("hash") String hash);
+}
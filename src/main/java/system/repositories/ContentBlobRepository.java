@@ -0,0 +1,44 @@
+package system.repositories;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import system.models.ContentBlob;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String>, ContentBlobRepositoryCustom {
+
+    // both return the number of rows changed, 0 means the blob does not exist
+    @Modifying
+    @Query("update ContentBlob b set b.refCount = b.refCount + 1 where b.hash = :hash")
+    int addReference(@Param("hash") String hash);
+
+    @Modifying
+    @Query("update ContentBlob b set b.refCount = b.refCount - 1 where b.hash = :hash")
+    int removeReference(@Param("hash") String hash);
+
+    @Modifying
+    @Query("delete from ContentBlob b where b.hash = :hash and b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("hash") String hash);
+
+    // blobs that have gone longest without a check, never checked ones first
+    @Query("select b from ContentBlob b order by b.verifiedAt asc nulls first, b.hash")
+    List<ContentBlob> findLeastRecentlyVerified(Pageable pageable);
+
+    // only touches the scrub columns, so it can't undo a reference count change made meanwhile
+    @Transactional
+    @Modifying
+    @Query("update ContentBlob b set b.verifiedAt = :verifiedAt, b.corrupt = :corrupt where b.hash = :hash")
+    int markVerified(@Param("hash") String hash, @Param("corrupt") boolean corrupt,
+                     @Param("verifiedAt") LocalDateTime verifiedAt);
+
+    @Query("select b.hash from ContentBlob b where b.corrupt = true")
+    List<String> findCorruptHashes();
+}
@@ -0,0 +1,14 @@
+package system.repositories;
+
+import system.models.ContentBlob;
+
+public interface ContentBlobRepositoryCustom {
+
+    /**
+     * Inserts the blob's row straight away. When another transaction is inserting the same hash this waits for it,
+     * and a row that is already there leaves the transaction as it was rather than failing it.
+     *
+     * @return false when a blob with the same hash exists
+     */
+    boolean insertIfAbsent(ContentBlob blob);
+}
@@ -0,0 +1,30 @@
+package system.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import system.models.ContentBlob;
+
+/**
+ * The insert goes through JDBC rather than the entity manager: a failed JPA write marks the whole transaction for
+ * rollback, while the database only undoes the one statement.
+ */
+@RequiredArgsConstructor
+public class ContentBlobRepositoryImpl implements ContentBlobRepositoryCustom {
+
+    private static final String INSERT_SQL = "insert into content_blob "
+            + "(hash, length, encoding, stored_length, ref_count, created_at, corrupt) values (?, ?, ?, ?, ?, ?, false)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean insertIfAbsent(ContentBlob blob) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, blob.getHash(), blob.getLength(), blob.getEncoding(),
+                    blob.getStoredLength(), blob.getRefCount(), blob.getCreatedAt());
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package system.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import system.models.ContentChunk;
+
+import java.util.List;
+
+@Repository
+public interface ContentChunkRepository extends JpaRepository<ContentChunk, Integer> {
+    List<ContentChunk> findByBlobHashOrderByChunkIndex(String blobHash);
+
+    @Modifying
+    @Query("delete from ContentChunk c where c.blobHash = :blobHash")
+    int deleteByBlobHash(@Param("blobHash") String blobHash);
+}
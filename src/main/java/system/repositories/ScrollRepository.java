@@ -1,26 +1,59 @@
 package system.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import system.models.Scroll;
 
-import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ScrollRepository extends JpaRepository<Scroll, Integer> {
-    Optional<Scroll> findByNameIgnoreCase(String name);
+public interface ScrollRepository extends JpaRepository<Scroll, Integer>, ScrollRepositoryCustom {
+    // compares against the indexed lower-cased copy of the name
+    @Query("select s from Scroll s where s.nameKey = lower(:name)")
+    Optional<Scroll> findByNameIgnoreCase(@Param("name") String name);
 
     /*
     If ur query may return mutliple thigns
      */
-    List<Scroll> findByNameContainingIgnoreCase(String name);
-    List<Scroll> findByUserId(int userId); // can give multiple
     Optional<Scroll> findById(int scrollId); // will only give one scroll
-    List<Scroll> findByCreatedAtAfter(LocalDateTime date);
-    List<Scroll> findByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
-    List<Scroll> findAllByOrderByDownloadsAsc(); // For ascending order
-    List<Scroll> findAllByOrderByDownloadsDesc();
+    List<Scroll> findByContentHashIn(Collection<String> contentHashes);
+
+    @Query("select s.id from Scroll s")
+    List<Integer> findAllIds();
+
+    // just the columns the name index needs
+    @Query("select s.id as id, s.name as name from Scroll s")
+    List<IdAndName> findAllNames();
+
+    interface IdAndName {
+        int getId();
+        String getName();
+    }
+
+    @Query("select s.id as id, s.name as name from Scroll s where s.id in :ids")
+    List<IdAndName> findNamesByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // the top of the downloads index, the all-time leaderboard, without reading every row
+    @Query("select s.id as id, s.downloads as downloads from Scroll s order by s.downloads desc, s.id desc")
+    List<IdAndDownloads> findMostDownloaded(Pageable pageable);
+
+    interface IdAndDownloads {
+        int getId();
+        int getDownloads();
+    }
+
+    // scrolls per uploader, only users with at least one scroll get a row
+    @Query("select s.user.id as userId, count(s) as scrollCount from Scroll s where s.user.id in :userIds group by s.user.id")
+    List<UploaderCount> countByUserIdIn(@Param("userIds") Collection<Integer> userIds);
+
+    interface UploaderCount {
+        int getUserId();
+        long getScrollCount();
+    }
 
 }
@@ -0,0 +1,25 @@
+package system.repositories;
+
+import system.models.ScrollCursor;
+import system.models.ScrollSearch;
+import system.models.ScrollSummary;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ScrollRepositoryCustom {
+
+    /**
+     * Up to limit summaries matching the search, in its order, starting after the cursor (or from the top when it is
+     * null).
+     */
+    List<ScrollSummary> findSummaryPage(ScrollSearch search, ScrollCursor after, int limit);
+
+    /**
+     * Adds each delta to its scroll's downloads in one transaction, without loading the scrolls. Counts stop at zero and
+     * ids without a scroll are skipped.
+     *
+     * @return the number of scrolls adjusted
+     */
+    int adjustDownloads(Map<Integer, Integer> deltas);
+}
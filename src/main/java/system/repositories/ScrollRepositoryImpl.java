@@ -0,0 +1,149 @@
+package system.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.*;
+import org.springframework.transaction.annotation.Transactional;
+import system.models.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Listing queries built with the Criteria API, so filters are only added when they are set and paging is a seek on
+ * the (sort key, id) index rather than an offset. Bulk download adjustments are native MERGE statements.
+ */
+public class ScrollRepositoryImpl implements ScrollRepositoryCustom {
+
+    // keeps each download adjustment statement to a size the database parses quickly
+    private static final int ADJUSTMENTS_PER_STATEMENT = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ScrollSummary> findSummaryPage(ScrollSearch search, ScrollCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ScrollSummary> query = cb.createQuery(ScrollSummary.class);
+        Root<Scroll> scroll = query.from(Scroll.class);
+        Join<Scroll, User> user = scroll.join("user");
+
+        query.select(cb.construct(ScrollSummary.class,
+                scroll.get("id"),
+                scroll.get("name"),
+                user.get("username"),
+                scroll.get("createdAt"),
+                scroll.get("updatedAt"),
+                scroll.get("downloads"),
+                cb.<Boolean>selectCase()
+                        .when(isProtected(cb, scroll), true)
+                        .otherwise(false)));
+
+        ScrollSort sort = search.getSort() != null ? search.getSort() : ScrollSort.RECENT;
+        List<Predicate> predicates = filters(cb, scroll, user, search);
+        if (after != null) {
+            predicates.add(after(cb, scroll, sort, after));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+
+        Path<Object> key = scroll.get(sort.getProperty());
+        Path<Object> id = scroll.get("id");
+        query.orderBy(sort.isAscending()
+                ? List.of(cb.asc(key), cb.asc(id))
+                : List.of(cb.desc(key), cb.desc(id)));
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    @Transactional
+    public int adjustDownloads(Map<Integer, Integer> deltas) {
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(deltas.entrySet());
+        int adjusted = 0;
+        for (int from = 0; from < entries.size(); from += ADJUSTMENTS_PER_STATEMENT) {
+            List<Map.Entry<Integer, Integer>> chunk =
+                    entries.subList(from, Math.min(from + ADJUSTMENTS_PER_STATEMENT, entries.size()));
+            String rows = String.join(" union all ",
+                    Collections.nCopies(chunk.size(), "select cast(? as integer) as id, cast(? as integer) as delta"));
+            Query update = entityManager.createNativeQuery("merge into scroll s using (" + rows + ") d on s.id = d.id "
+                    + "when matched then update set downloads = greatest(s.downloads + d.delta, 0)");
+            int position = 1;
+            for (Map.Entry<Integer, Integer> entry : chunk) {
+                update.setParameter(position++, entry.getKey());
+                update.setParameter(position++, entry.getValue());
+            }
+            adjusted += update.executeUpdate();
+        }
+        return adjusted;
+    }
+
+    private static List<Predicate> filters(CriteriaBuilder cb, Root<Scroll> scroll, Join<Scroll, User> user,
+                                           ScrollSearch search) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (search.getScrollId() != null) {
+            predicates.add(cb.equal(scroll.get("id"), search.getScrollId()));
+        }
+        if (search.getIds() != null) {
+            predicates.add(scroll.get("id").in(search.getIds()));
+        }
+        if (search.getUploaderId() != null) {
+            predicates.add(cb.equal(user.get("id"), search.getUploaderId()));
+        }
+        if (search.getName() != null && !search.getName().isEmpty()) {
+            predicates.add(cb.like(cb.upper(scroll.<String>get("name")), "%" + escapeLike(search.getName().toUpperCase()) + "%", '\\'));
+        }
+        if (search.getCreatedFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(scroll.<LocalDateTime>get("createdAt"), search.getCreatedFrom()));
+        }
+        if (search.getCreatedTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(scroll.<LocalDateTime>get("createdAt"), search.getCreatedTo()));
+        }
+        if (search.getMinDownloads() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(scroll.<Integer>get("downloads"), search.getMinDownloads()));
+        }
+        if (search.getMaxDownloads() != null) {
+            predicates.add(cb.lessThanOrEqualTo(scroll.<Integer>get("downloads"), search.getMaxDownloads()));
+        }
+        if (search.getPasswordProtected() != null) {
+            Predicate isProtected = isProtected(cb, scroll);
+            predicates.add(search.getPasswordProtected() ? isProtected : cb.not(isProtected));
+        }
+        return predicates;
+    }
+
+    // an empty password is stored for scrolls created without one
+    private static Predicate isProtected(CriteriaBuilder cb, Root<Scroll> scroll) {
+        Path<String> password = scroll.get("password");
+        return cb.and(cb.isNotNull(password), cb.notEqual(password, ""));
+    }
+
+    // rows strictly after the cursor in the listing order: a later key, or the same key and a later id
+    private static Predicate after(CriteriaBuilder cb, Root<Scroll> scroll, ScrollSort sort, ScrollCursor cursor) {
+        return switch (sort) {
+            case RECENT -> after(cb, scroll.<LocalDateTime>get("updatedAt"), (LocalDateTime) sort.parseKey(cursor.key()),
+                    scroll.get("id"), cursor.id(), sort.isAscending());
+            case ID -> sort.isAscending()
+                    ? cb.greaterThan(scroll.<Integer>get("id"), cursor.id())
+                    : cb.lessThan(scroll.<Integer>get("id"), cursor.id());
+            case DOWNLOADS_ASC, DOWNLOADS_DESC -> after(cb, scroll.<Integer>get("downloads"),
+                    (Integer) sort.parseKey(cursor.key()), scroll.get("id"), cursor.id(), sort.isAscending());
+        };
+    }
+
+    private static <T extends Comparable<? super T>> Predicate after(CriteriaBuilder cb, Expression<T> key, T value,
+                                                                     Expression<Integer> id, int lastId,
+                                                                     boolean ascending) {
+        if (ascending) {
+            return cb.or(cb.greaterThan(key, value), cb.and(cb.equal(key, value), cb.greaterThan(id, lastId)));
+        }
+        return cb.or(cb.lessThan(key, value), cb.and(cb.equal(key, value), cb.lessThan(id, lastId)));
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
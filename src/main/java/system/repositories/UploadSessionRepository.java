@@ -0,0 +1,19 @@
+package system.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import system.models.UploadSession;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    Optional<UploadSession> findByIdAndUserId(String id, int userId);
+
+    long countByUserId(int userId);
+
+    List<UploadSession> findByUpdatedAtBefore(LocalDateTime cutoff);
+}
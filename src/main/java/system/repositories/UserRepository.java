@@ -1,6 +1,8 @@
 package system.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import system.models.User;
 
@@ -9,6 +11,20 @@ import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
-    Optional<User> findByUsernameIgnoreCase(String username);
+    // compares against the indexed lower-cased copy of the username
+    @Query("select u from User u where u.usernameKey = lower(:username)")
+    Optional<User> findByUsernameIgnoreCase(@Param("username") String username);
+
     List<User> findByUsernameContainingIgnoreCase(String username);
+
+    @Query("select u.username from User u")
+    List<String> findAllUsernames();
+
+    @Query("select u.id as id, u.username as username from User u")
+    List<IdAndUsername> findAllIdsAndUsernames();
+
+    interface IdAndUsername {
+        int getId();
+        String getUsername();
+    }
 }
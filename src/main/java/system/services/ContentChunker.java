@@ -0,0 +1,131 @@
+package system.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import system.models.ContentChunk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Splits stored content into fixed-size chunks and checksums them. Chunks are independent, so both indexing and
+ * verification run across all cores.
+ */
+@Component
+public class ContentChunker {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int chunkSize;
+
+    public ContentChunker(@Value("${vsas.storage.chunk-size:4MB}") DataSize chunkSize) {
+        this.chunkSize = (int) chunkSize.toBytes();
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Builds the chunk index of a file, hashing the chunks in parallel with positional reads.
+     */
+    public List<ContentChunk> index(String blobHash, Path file) throws IOException {
+        long size = Files.size(file);
+        int count = (int) ((size + chunkSize - 1) / chunkSize);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return IntStream.range(0, count).parallel().mapToObj(i -> {
+                long offset = (long) i * chunkSize;
+                int length = (int) Math.min(chunkSize, size - offset);
+                return ContentChunk.builder()
+                        .blobHash(blobHash)
+                        .chunkIndex(i)
+                        .chunkOffset(offset)
+                        .length(length)
+                        .checksum(checksum(channel, offset, length))
+                        .build();
+            }).toList();
+        }
+    }
+
+    /**
+     * Re-reads every indexed chunk of the content in parallel and returns the indexes of those whose checksum no
+     * longer matches.
+     */
+    public List<Integer> verify(List<ContentChunk> chunks, Resource content) {
+        return chunks.parallelStream()
+                .filter(chunk -> !matches(chunk, content))
+                .map(ContentChunk::getChunkIndex)
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Re-reads a single chunk on the calling thread, for callers that pace their own reads.
+     */
+    public boolean matches(ContentChunk chunk, Resource content) {
+        return chunk.getChecksum().equals(checksum(content, chunk));
+    }
+
+    private static String checksum(FileChannel channel, long offset, int length) {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = offset;
+        long end = offset + length;
+        try {
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(BUFFER_SIZE, end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+                digest.update(buffer.flip());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String checksum(Resource content, ContentChunk chunk) {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = content.getInputStream()) {
+            in.skipNBytes(chunk.getChunkOffset());
+            int remaining = chunk.getLength();
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    break;
+                }
+                digest.update(buffer, 0, read);
+                remaining -= read;
+            }
+        } catch (IOException e) {
+            // unreadable content counts as a failed check rather than aborting the others
+            return "";
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
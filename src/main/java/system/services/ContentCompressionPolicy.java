@@ -0,0 +1,41 @@
+package system.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Decides which uploads are worth compressing before they are stored. Only the listed types are compressed, so
+ * formats that are already compressed (archives, images, video) are stored as they are.
+ */
+@Component
+public class ContentCompressionPolicy {
+
+    private final List<MediaType> compressibleTypes;
+
+    public ContentCompressionPolicy(@Value("${vsas.storage.compressible-types}") String compressibleTypes) {
+        this.compressibleTypes = MediaType.parseMediaTypes(compressibleTypes);
+    }
+
+    public boolean isCompressible(String contentType) {
+        if (contentType == null || contentType.isEmpty()) {
+            return false;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return compressibleTypes.stream().anyMatch(type -> type.includes(mediaType));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Compressed copies that do not save at least a tenth of the original are not worth decompressing later.
+     */
+    public boolean isWorthKeeping(long originalLength, long compressedLength) {
+        return compressedLength < originalLength - originalLength / 10;
+    }
+}
@@ -0,0 +1,138 @@
+package system.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import system.models.ContentBlob;
+import system.models.ContentChunk;
+import system.models.Scroll;
+import system.repositories.ContentBlobRepository;
+import system.repositories.ContentChunkRepository;
+import system.repositories.ScrollRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background check that stored content still matches the chunk checksums recorded at upload. Each run takes the
+ * blobs that have gone longest without a check, so the whole store is covered over time without ever scanning it in
+ * one go, and reads one chunk at a time at a capped rate so downloads keep the disk.
+ * <p>
+ * Pacing the reads means sleeping for most of a run, so the scrubber has a thread of its own instead of a
+ * {@code @Scheduled} slot, where it would hold up the download flushes and rollups sharing the scheduler.
+ */
+@Slf4j
+@Service
+public class ContentScrubber {
+
+    private final ContentBlobRepository contentBlobRepository;
+    private final ContentChunkRepository contentChunkRepository;
+    private final ContentStore contentStore;
+    private final ContentChunker contentChunker;
+    private final ScrollRepository scrollRepository;
+    private final int batchSize;
+    private final long bytesPerSecond;
+    private final Duration interval;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "content-scrubber");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ContentScrubber(ContentBlobRepository contentBlobRepository, ContentChunkRepository contentChunkRepository,
+                           ContentStore contentStore, ContentChunker contentChunker, ScrollRepository scrollRepository,
+                           @Value("${vsas.scrub.batch-size:20}") int batchSize,
+                           @Value("${vsas.scrub.rate:8MB}") DataSize rate,
+                           @Value("${vsas.scrub.interval:PT5M}") Duration interval) {
+        this.contentBlobRepository = contentBlobRepository;
+        this.contentChunkRepository = contentChunkRepository;
+        this.contentStore = contentStore;
+        this.contentChunker = contentChunker;
+        this.scrollRepository = scrollRepository;
+        this.batchSize = batchSize;
+        this.bytesPerSecond = Math.max(1, rate.toBytes());
+        this.interval = interval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(this::runBatch, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // interrupts a run that is sleeping between chunks
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public void scrubBatch() {
+        try {
+            for (ContentBlob blob : contentBlobRepository.findLeastRecentlyVerified(PageRequest.of(0, batchSize))) {
+                scrub(blob.getHash());
+            }
+        } catch (InterruptedException e) {
+            // shutting down, the remaining blobs are picked up first on the next start
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Verifies one blob chunk by chunk and records the outcome.
+     *
+     * @return true if every chunk still matches
+     */
+    public boolean scrub(String hash) throws InterruptedException {
+        List<ContentChunk> chunks = contentChunkRepository.findByBlobHashOrderByChunkIndex(hash);
+        Optional<Resource> content = contentStore.read(hash);
+        boolean intact = content.isPresent();
+        for (ContentChunk chunk : chunks) {
+            if (!intact) {
+                break;
+            }
+            intact = contentChunker.matches(chunk, content.get());
+            throttle(chunk.getLength());
+        }
+
+        contentBlobRepository.markVerified(hash, !intact, LocalDateTime.now());
+        if (!intact) {
+            log.warn("Stored content {} failed its integrity check", hash);
+        }
+        return intact;
+    }
+
+    /**
+     * Scrolls whose content failed its last check, for the admin pages.
+     */
+    public List<Scroll> findCorruptScrolls() {
+        List<String> hashes = contentBlobRepository.findCorruptHashes();
+        return hashes.isEmpty() ? List.of() : scrollRepository.findByContentHashIn(hashes);
+    }
+
+    // a failed run must not cancel the later ones, which is what an exception does to a scheduled executor task
+    private void runBatch() {
+        try {
+            scrubBatch();
+        } catch (RuntimeException e) {
+            log.warn("Integrity scrub run failed, trying again in {}", interval, e);
+        }
+    }
+
+    // sleeps as long as reading the bytes at the configured rate would take
+    private void throttle(long bytes) throws InterruptedException {
+        long pause = bytes * 1000 / bytesPerSecond;
+        if (pause > 0) {
+            Thread.sleep(pause);
+        }
+    }
+}
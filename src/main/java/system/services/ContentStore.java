@@ -0,0 +1,22 @@
+package system.services;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Where scroll file bytes are kept, addressed by their SHA-256. The active implementation is chosen with the
+ * {@code vsas.storage.type} property.
+ */
+public interface ContentStore {
+
+    /**
+     * Stores a staged upload under its hash, replacing anything stored before.
+     */
+    void write(String hash, StagedContent staged) throws IOException;
+
+    Optional<Resource> read(String hash);
+
+    void delete(String hash);
+}
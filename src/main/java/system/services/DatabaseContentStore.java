@@ -0,0 +1,148 @@
+package system.services;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import system.models.ContentBlobData;
+import system.repositories.ContentBlobDataRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "vsas.storage.type", havingValue = "database", matchIfMissing = true)
+public class DatabaseContentStore implements ContentStore {
+
+    private final ContentBlobDataRepository contentBlobDataRepository;
+    private final ContentChunker contentChunker;
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void write(String hash, StagedContent staged) throws IOException {
+        contentBlobDataRepository.deleteByHash(hash);
+        try (InputStream in = Files.newInputStream(staged.file())) {
+            int chunkIndex = 0;
+            byte[] chunk;
+            while ((chunk = in.readNBytes(contentChunker.getChunkSize())).length > 0) {
+                ContentBlobData data = new ContentBlobData(0, hash, chunkIndex++, chunk.length, chunk);
+                entityManager.persist(data);
+                // push each chunk out and drop it so only one chunk is ever held in memory
+                entityManager.flush();
+                entityManager.detach(data);
+            }
+        }
+    }
+
+    @Override
+    public Optional<Resource> read(String hash) {
+        List<Integer> chunkLengths = contentBlobDataRepository.findChunkLengths(hash);
+        if (chunkLengths.isEmpty()) {
+            return Optional.empty();
+        }
+        long length = chunkLengths.stream().mapToLong(Integer::longValue).sum();
+        return Optional.of(new AbstractResource() {
+            @Override
+            public String getDescription() {
+                return "database content " + hash;
+            }
+
+            @Override
+            public InputStream getInputStream() {
+                return new ChunkInputStream(hash, chunkLengths);
+            }
+
+            @Override
+            public long contentLength() {
+                return length;
+            }
+        });
+    }
+
+    @Override
+    @Transactional
+    public void delete(String hash) {
+        contentBlobDataRepository.deleteByHash(hash);
+    }
+
+    /**
+     * Reads a blob one chunk at a time, loading each chunk only when the stream reaches it. Skipping jumps over
+     * whole chunks without loading them, which keeps range requests cheap.
+     */
+    private class ChunkInputStream extends InputStream {
+
+        private final String hash;
+        private final List<Integer> chunkLengths;
+        private int nextChunk;
+        private byte[] chunk;
+        private int position;
+
+        ChunkInputStream(String hash, List<Integer> chunkLengths) {
+            this.hash = hash;
+            this.chunkLengths = chunkLengths;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!loadChunk()) {
+                return -1;
+            }
+            return chunk[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!loadChunk()) {
+                return -1;
+            }
+            int count = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            if (chunk != null) {
+                int count = (int) Math.min(n, chunk.length - position);
+                position += count;
+                skipped += count;
+            }
+            while (skipped < n && nextChunk < chunkLengths.size() && chunkLengths.get(nextChunk) <= n - skipped) {
+                skipped += chunkLengths.get(nextChunk++);
+            }
+            if (skipped < n && loadChunk()) {
+                int count = (int) Math.min(n - skipped, chunk.length - position);
+                position += count;
+                skipped += count;
+            }
+            return skipped;
+        }
+
+        private boolean loadChunk() throws IOException {
+            while (chunk == null || position >= chunk.length) {
+                if (nextChunk >= chunkLengths.size()) {
+                    return false;
+                }
+                int index = nextChunk++;
+                chunk = contentBlobDataRepository.findByHashAndChunkIndex(hash, index)
+                        .map(ContentBlobData::getData)
+                        .orElseThrow(() -> new IOException("Chunk " + index + " of content " + hash + " is missing"));
+                position = 0;
+            }
+            return true;
+        }
+    }
+}
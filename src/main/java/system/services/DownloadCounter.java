@@ -0,0 +1,78 @@
+package system.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Download counts kept in memory and added to the database in batches. A download only bumps a striped counter for
+ * its scroll, and every interval (and at shutdown) the counted downloads are written with one relative update per
+ * scroll, so concurrent downloads never overwrite each other's increments.
+ */
+@Slf4j
+@Service
+public class DownloadCounter {
+
+    private static final String FLUSH_SQL = "update scroll set downloads = downloads + ? where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // counters are never removed, a download racing the removal could land in a counter nobody flushes any more.
+    // There is at most one per scroll that has been downloaded since startup
+    private final Map<Integer, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public DownloadCounter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void record(int scrollId) {
+        pending.computeIfAbsent(scrollId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * Downloads counted for the scroll that are not in the database yet.
+     */
+    public long unflushed(int scrollId) {
+        LongAdder counter = pending.get(scrollId);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${vsas.downloads.flush-interval:PT5S}")
+    public synchronized void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        pending.forEach((scrollId, counter) -> {
+            // downloads counted after this are left in the counter for the next flush
+            long count = counter.sumThenReset();
+            if (count > 0) {
+                batch.add(new Object[]{count, scrollId});
+            }
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            // all or nothing, a partly applied batch would be counted twice by the retry
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(FLUSH_SQL, batch));
+        } catch (DataAccessException e) {
+            // put the counts back so the next flush retries them
+            for (Object[] row : batch) {
+                pending.computeIfAbsent((Integer) row[1], id -> new LongAdder()).add((Long) row[0]);
+            }
+            log.warn("Could not write {} download counts, retrying on the next flush", batch.size(), e);
+        }
+    }
+}
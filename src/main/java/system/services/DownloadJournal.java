@@ -0,0 +1,70 @@
+package system.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Append-only log of downloads. Events are queued in memory and inserted in batches, so a download never waits for
+ * the write. {@link DownloadStatistics} folds them into hourly and daily totals.
+ */
+@Slf4j
+@Service
+public class DownloadJournal {
+
+    private static final String INSERT_SQL =
+            "insert into download_event (scroll_id, username, downloaded_at, bytes) values (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Queue<Object[]> pending = new ConcurrentLinkedQueue<>();
+
+    public DownloadJournal(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void append(int scrollId, String username, long bytes) {
+        pending.add(new Object[]{scrollId, username, Timestamp.valueOf(LocalDateTime.now()), bytes});
+    }
+
+    /**
+     * Number of events waiting to be written.
+     */
+    public int backlog() {
+        return pending.size();
+    }
+
+    // one writer at a time, so event ids are committed in increasing order and the rollup watermark never skips one
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${vsas.downloads.flush-interval:PT5S}")
+    public synchronized void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        Object[] event;
+        while ((event = pending.poll()) != null) {
+            batch.add(event);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            // all or nothing, so the retry cannot log an event twice
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch));
+        } catch (DataAccessException e) {
+            pending.addAll(batch);
+            log.warn("Could not write {} download events, retrying on the next flush", batch.size(), e);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package system.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import system.models.DownloadWindow;
+import system.repositories.ScrollRepository;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The most downloaded scrolls over the last hour and the last day, kept in {@link SpaceSaving} sketches. Each sketch
+ * holds a fixed number of counters, so ranking costs the same however many scrolls there are. The hour is twelve
+ * five-minute slots and the day twenty-four hourly ones, each slot dropped whole once it falls out of the window. All
+ * time is read off the downloads index instead, where the counts are exact.
+ * <p>
+ * Downloads only bump a per-scroll {@link LongAdder}, the sketches are fed from those by a single drain every flush
+ * interval and before each ranking, so the download path never waits for a lock.
+ */
+@Component
+public class DownloadLeaderboard {
+
+    private final ScrollRepository scrollRepository;
+    private final SlidingWindow lastHour;
+    private final SlidingWindow lastDay;
+
+    // like the download counter's, at most one per scroll downloaded since startup and only dropped with the scroll
+    private final Map<Integer, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public DownloadLeaderboard(ScrollRepository scrollRepository,
+                               @Value("${vsas.downloads.leaderboard-size:100}") int capacity) {
+        this.scrollRepository = scrollRepository;
+        this.lastHour = new SlidingWindow(Duration.ofMinutes(5), 12, capacity);
+        this.lastDay = new SlidingWindow(Duration.ofHours(1), 24, capacity);
+    }
+
+    public void record(int scrollId) {
+        pending.computeIfAbsent(scrollId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * Moves the downloads recorded since the last drain into the window sketches, as if they all happened now. Slots
+     * are minutes long, so the few seconds between drains do not move a download out of its slot in a way that shows.
+     */
+    @Scheduled(fixedDelayString = "${vsas.downloads.flush-interval:PT5S}")
+    public void drain() {
+        drain(System.currentTimeMillis());
+    }
+
+    synchronized void drain(long now) {
+        pending.forEach((scrollId, counter) -> {
+            long count = counter.sumThenReset();
+            if (count > 0) {
+                lastHour.add(scrollId, count, now);
+                lastDay.add(scrollId, count, now);
+            }
+        });
+    }
+
+    /**
+     * Drops a deleted scroll from every window. Inside a transaction this waits for the commit.
+     */
+    public void remove(int scrollId) {
+        AfterCommit.run(() -> forget(scrollId));
+    }
+
+    /**
+     * Ids of the most downloaded scrolls over the window with their downloads, most downloaded first. The hour and the
+     * day are estimates, all time is the stored count, which lags by at most one download counter flush.
+     */
+    public Map<Integer, Long> top(DownloadWindow window, int limit) {
+        return top(window, limit, System.currentTimeMillis());
+    }
+
+    Map<Integer, Long> top(DownloadWindow window, int limit, long now) {
+        if (window == DownloadWindow.ALL_TIME) {
+            Map<Integer, Long> top = new LinkedHashMap<>();
+            for (ScrollRepository.IdAndDownloads scroll : scrollRepository.findMostDownloaded(PageRequest.of(0, limit))) {
+                if (scroll.getDownloads() > 0) {
+                    top.put(scroll.getId(), (long) scroll.getDownloads());
+                }
+            }
+            return top;
+        }
+        synchronized (this) {
+            drain(now);
+            return window == DownloadWindow.HOUR ? lastHour.top(limit, now) : lastDay.top(limit, now);
+        }
+    }
+
+    private synchronized void forget(int scrollId) {
+        pending.remove(scrollId);
+        lastHour.remove(scrollId);
+        lastDay.remove(scrollId);
+    }
+
+    // a ring of sketches, one per slot, each cleared when the ring comes round to it again
+    private static final class SlidingWindow {
+
+        private final long slotMillis;
+        private final SpaceSaving[] slots;
+        private final long[] periods;
+
+        SlidingWindow(Duration slot, int count, int capacity) {
+            this.slotMillis = slot.toMillis();
+            this.slots = new SpaceSaving[count];
+            this.periods = new long[count];
+            for (int i = 0; i < count; i++) {
+                slots[i] = new SpaceSaving(capacity);
+                periods[i] = -1;
+            }
+        }
+
+        void add(int scrollId, long count, long now) {
+            long period = now / slotMillis;
+            int i = (int) (period % slots.length);
+            if (periods[i] != period) {
+                slots[i].clear();
+                periods[i] = period;
+            }
+            slots[i].add(scrollId, count);
+        }
+
+        void remove(int scrollId) {
+            for (SpaceSaving slot : slots) {
+                slot.remove(scrollId);
+            }
+        }
+
+        // sums the slots still inside the window
+        Map<Integer, Long> top(int limit, long now) {
+            long current = now / slotMillis;
+            Map<Integer, Long> sums = new HashMap<>();
+            for (int i = 0; i < slots.length; i++) {
+                if (periods[i] > current - slots.length && periods[i] <= current) {
+                    slots[i].counters().forEach(counter -> sums.merge(counter.id(), counter.count(), Long::sum));
+                }
+            }
+            Map<Integer, Long> top = new LinkedHashMap<>();
+            sums.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+            return top;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package system.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import system.models.DownloadBucket;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Hourly and daily download totals per scroll. A background job folds the events {@link DownloadJournal} logged since
+ * the watermark into the rollup tables, moving the watermark in the same transaction, so every event is counted once
+ * however often the job runs or fails. Statistics are only ever read from the rollups.
+ */
+@Service
+public class DownloadStatistics {
+
+    private static final String HOUR_TABLE = "download_rollup_hour";
+    private static final String DAY_TABLE = "download_rollup_day";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public DownloadStatistics(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              @Value("${vsas.downloads.rollup-batch-size:10000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${vsas.downloads.rollup-interval:PT1M}")
+    public void rollUp() {
+        while (rollUpBatch()) {
+            // keep going while full batches come back
+        }
+    }
+
+    /**
+     * Folds the next batch of events past the watermark into the rollups.
+     *
+     * @return true if the batch was full and more events may be waiting
+     */
+    public synchronized boolean rollUpBatch() {
+        Boolean full = transactionTemplate.execute(status -> {
+            // the row lock keeps two instances from folding the same events
+            long watermark = jdbcTemplate.queryForObject(
+                    "select last_event_id from download_rollup_watermark where id = 1 for update", Long.class);
+            long[] range = jdbcTemplate.queryForObject(
+                    "select count(*), coalesce(max(id), 0) from "
+                            + "(select id from download_event where id > ? order by id limit ?) batch",
+                    (rs, row) -> new long[]{rs.getLong(1), rs.getLong(2)}, watermark, batchSize);
+            if (range[0] == 0) {
+                return false;
+            }
+            merge(HOUR_TABLE, "HOUR", watermark, range[1]);
+            merge(DAY_TABLE, "DAY", watermark, range[1]);
+            jdbcTemplate.update("update download_rollup_watermark set last_event_id = ? where id = 1", range[1]);
+            return range[0] == batchSize;
+        });
+        return Boolean.TRUE.equals(full);
+    }
+
+    /**
+     * Downloads across all scrolls for each of the last days, oldest first, including days without any.
+     */
+    public List<DownloadBucket> dailyTotals(int days) {
+        LocalDateTime today = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+        return totals(DAY_TABLE, today.minusDays(days - 1L), days, ChronoUnit.DAYS);
+    }
+
+    /**
+     * Downloads across all scrolls for each of the last hours, oldest first, including hours without any.
+     */
+    public List<DownloadBucket> hourlyTotals(int hours) {
+        LocalDateTime thisHour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        return totals(HOUR_TABLE, thisHour.minusHours(hours - 1L), hours, ChronoUnit.HOURS);
+    }
+
+    /**
+     * Downloads of each of the scrolls over the last days, scrolls without any are left out.
+     */
+    public Map<Integer, Long> recentDownloads(Collection<Integer> scrollIds, int days) {
+        if (scrollIds.isEmpty()) {
+            return Map.of();
+        }
+        LocalDateTime from = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).minusDays(days - 1L);
+        String placeholders = String.join(", ", Collections.nCopies(scrollIds.size(), "?"));
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(from));
+        args.addAll(scrollIds);
+
+        Map<Integer, Long> downloads = new HashMap<>();
+        jdbcTemplate.query("select scroll_id, sum(downloads) from " + DAY_TABLE
+                        + " where bucket_start >= ? and scroll_id in (" + placeholders + ") group by scroll_id",
+                rs -> {
+                    downloads.put(rs.getInt(1), rs.getLong(2));
+                }, args.toArray());
+        return downloads;
+    }
+
+    // adds the events in (after, upTo] to the table's buckets of the given unit
+    private void merge(String table, String unit, long after, long upTo) {
+        String bucket = "date_trunc('" + unit + "', downloaded_at)";
+        jdbcTemplate.update("merge into " + table + " r using ("
+                + "select scroll_id, " + bucket + " as bucket_start, count(*) as downloads, sum(bytes) as bytes "
+                + "from download_event where id > ? and id <= ? group by scroll_id, " + bucket
+                + ") e on r.scroll_id = e.scroll_id and r.bucket_start = e.bucket_start "
+                + "when matched then update set downloads = r.downloads + e.downloads, bytes = r.bytes + e.bytes "
+                + "when not matched then insert (scroll_id, bucket_start, downloads, bytes) "
+                + "values (e.scroll_id, e.bucket_start, e.downloads, e.bytes)", after, upTo);
+    }
+
+    private List<DownloadBucket> totals(String table, LocalDateTime from, int count, ChronoUnit unit) {
+        Map<LocalDateTime, DownloadBucket> stored = new HashMap<>();
+        jdbcTemplate.query("select bucket_start, sum(downloads), sum(bytes) from " + table
+                        + " where bucket_start >= ? group by bucket_start",
+                rs -> {
+                    LocalDateTime start = rs.getTimestamp(1).toLocalDateTime();
+                    stored.put(start, new DownloadBucket(start, rs.getLong(2), rs.getLong(3)));
+                }, Timestamp.valueOf(from));
+
+        List<DownloadBucket> buckets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDateTime start = from.plus(i, unit);
+            buckets.add(stored.getOrDefault(start, new DownloadBucket(start, 0, 0)));
+        }
+        return buckets;
+    }
+}
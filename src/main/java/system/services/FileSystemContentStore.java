@@ -0,0 +1,108 @@
+package system.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+
+/**
+ * Keeps each scroll as a plain file so downloads can be handed to the container's sendfile support.
+ */
+@Service
+@ConditionalOnProperty(name = "vsas.storage.type", havingValue = "filesystem")
+public class FileSystemContentStore implements ContentStore {
+
+    private final Path root;
+
+    public FileSystemContentStore(@Value("${vsas.storage.root:./data/scrolls}") String root) throws IOException {
+        this.root = Files.createDirectories(Path.of(root));
+    }
+
+    @Override
+    public void write(String hash, StagedContent staged) throws IOException {
+        Files.createDirectories(pathOf(hash).getParent());
+        Object written;
+        synchronized (this) {
+            Files.move(staged.file(), pathOf(hash), StandardCopyOption.REPLACE_EXISTING);
+            written = fileKeyOf(hash);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // the blob row goes away with a rollback, so does the file. Only this write's file is removed, a later
+            // upload of the same content may have replaced it
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        deleteFile(hash, written);
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public Optional<Resource> read(String hash) {
+        Path path = pathOf(hash);
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        return Optional.of(new FileSystemResource(path));
+    }
+
+    @Override
+    public void delete(String hash) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // files are not transactional, so wait for the commit rather than lose bytes to a rolled back delete. An
+            // upload of the same content may store a new file before then, which must be left alone
+            Object dropped = fileKeyOf(hash);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deleteFile(hash, dropped);
+                }
+            });
+        } else {
+            deleteFile(hash, fileKeyOf(hash));
+        }
+    }
+
+    // writes replace the file rather than overwrite it, so a file that was written again has another key
+    private synchronized void deleteFile(String hash, Object dropped) {
+        try {
+            if (dropped != null && dropped.equals(fileKeyOf(hash))) {
+                Files.delete(pathOf(hash));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized Object fileKeyOf(String hash) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(pathOf(hash), BasicFileAttributes.class);
+            // not every file system has file keys, the creation time stands in where it has none
+            return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // files are fanned out by the first two hex digits so no directory grows too large
+    private Path pathOf(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+}
@@ -0,0 +1,76 @@
+package system.services;
+
+/**
+ * HyperLogLog sketch estimating how many distinct usernames were added, ignoring case, to within about 3%. It takes
+ * 1 KB however many names go in, and two sketches merge into one that counts the names of both, each name once. Not
+ * thread-safe.
+ */
+final class HyperLogLog {
+
+    // 2^10 registers, for a standard error of 1.04 / sqrt(1024)
+    private static final int PRECISION = 10;
+    static final int REGISTERS = 1 << PRECISION;
+
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers;
+
+    HyperLogLog() {
+        this(new byte[REGISTERS]);
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    /**
+     * A sketch read back from {@link #toBytes()}.
+     */
+    static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes.length != REGISTERS) {
+            throw new IllegalArgumentException("Expected " + REGISTERS + " registers, got " + bytes.length);
+        }
+        return new HyperLogLog(bytes.clone());
+    }
+
+    void add(String name) {
+        long hash = NameHash.of(name);
+        int register = (int) (hash >>> (64 - PRECISION));
+        // position of the first set bit in what is left of the hash, counting from 1
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << PRECISION), 64 - PRECISION) + 1;
+        if (rank > registers[register]) {
+            registers[register] = (byte) rank;
+        }
+    }
+
+    /**
+     * Folds the other sketch into this one and returns this one.
+     */
+    HyperLogLog merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            registers[i] = (byte) Math.max(registers[i], other.registers[i]);
+        }
+        return this;
+    }
+
+    long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        // small counts leave registers empty, and counting those is more accurate there
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    byte[] toBytes() {
+        return registers.clone();
+    }
+}
@@ -0,0 +1,174 @@
+package system.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import system.repositories.ScrollRepository;
+import system.repositories.UserRepository;
+
+import java.util.*;
+
+/**
+ * Prefix completion for scroll names and usernames, ignoring case. Each is a sorted array that writers replace with
+ * an updated copy, so a lookup is a binary search on whatever array is current and never waits for a writer.
+ */
+@Component
+@RequiredArgsConstructor
+public class NameAutocompleteIndex {
+
+    private final ScrollRepository scrollRepository;
+    private final UserRepository userRepository;
+
+    private final Suggestions scrollNames = new Suggestions();
+    private final Suggestions usernames = new Suggestions();
+
+    // writers hold the lock, so changes committed while the names load are applied after the load and win
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        Map<Integer, String> scrolls = new HashMap<>();
+        scrollRepository.findAllNames().forEach(scroll -> scrolls.put(scroll.getId(), scroll.getName()));
+        scrollNames.load(scrolls);
+
+        Map<Integer, String> users = new HashMap<>();
+        userRepository.findAllIdsAndUsernames().forEach(user -> users.put(user.getId(), user.getUsername()));
+        usernames.load(users);
+    }
+
+    /**
+     * Offers a scroll under its current name instead of its old one. Inside a transaction this waits for the commit.
+     */
+    public void putScroll(int id, String name) {
+        AfterCommit.run(() -> update(scrollNames, id, name));
+    }
+
+    public void removeScroll(int id) {
+        AfterCommit.run(() -> update(scrollNames, id, null));
+    }
+
+    public void putUser(int id, String username) {
+        AfterCommit.run(() -> update(usernames, id, username));
+    }
+
+    public void removeUser(int id) {
+        AfterCommit.run(() -> update(usernames, id, null));
+    }
+
+    /**
+     * Up to limit scroll names starting with the prefix, ignoring case, in alphabetical order.
+     */
+    public List<String> completeScrollName(String prefix, int limit) {
+        return scrollNames.complete(prefix, limit);
+    }
+
+    public List<String> completeUsername(String prefix, int limit) {
+        return usernames.complete(prefix, limit);
+    }
+
+    private synchronized void update(Suggestions suggestions, int id, String name) {
+        suggestions.replace(id, name);
+    }
+
+    private static String keyOf(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    // keys[i] is names[i] lower-cased, both ordered by key and then by name
+    private record Snapshot(String[] keys, String[] names) {
+    }
+
+    private static final class Suggestions {
+
+        private static final Comparator<String> ORDER =
+                Comparator.comparing(NameAutocompleteIndex::keyOf).thenComparing(Comparator.naturalOrder());
+
+        // id -> name, to find the entry to drop on a rename or delete. Only touched under the index lock
+        private final Map<Integer, String> byId = new HashMap<>();
+
+        private volatile Snapshot snapshot = new Snapshot(new String[0], new String[0]);
+
+        void load(Map<Integer, String> names) {
+            byId.clear();
+            byId.putAll(names);
+            String[] sorted = names.values().toArray(String[]::new);
+            Arrays.sort(sorted, ORDER);
+            snapshot = new Snapshot(Arrays.stream(sorted).map(NameAutocompleteIndex::keyOf).toArray(String[]::new), sorted);
+        }
+
+        void replace(int id, String name) {
+            String old = name != null ? byId.put(id, name) : byId.remove(id);
+            if (Objects.equals(old, name)) {
+                return;
+            }
+            Snapshot current = snapshot;
+            if (old != null) {
+                current = without(current, old);
+            }
+            if (name != null) {
+                current = with(current, name);
+            }
+            snapshot = current;
+        }
+
+        List<String> complete(String prefix, int limit) {
+            Snapshot current = snapshot;
+            String key = keyOf(prefix);
+            List<String> matches = new ArrayList<>(Math.min(limit, 16));
+            for (int i = lowerBound(current.keys(), key); i < current.keys().length && matches.size() < limit; i++) {
+                if (!current.keys()[i].startsWith(key)) {
+                    break;
+                }
+                matches.add(current.names()[i]);
+            }
+            return matches;
+        }
+
+        private static Snapshot with(Snapshot snapshot, String name) {
+            String[] names = snapshot.names();
+            int at = Arrays.binarySearch(names, name, ORDER);
+            if (at >= 0) {
+                return snapshot;
+            }
+            at = -at - 1;
+            return new Snapshot(insert(snapshot.keys(), at, keyOf(name)), insert(names, at, name));
+        }
+
+        private static Snapshot without(Snapshot snapshot, String name) {
+            int at = Arrays.binarySearch(snapshot.names(), name, ORDER);
+            if (at < 0) {
+                return snapshot;
+            }
+            return new Snapshot(delete(snapshot.keys(), at), delete(snapshot.names(), at));
+        }
+
+        private static String[] insert(String[] values, int at, String value) {
+            String[] copy = new String[values.length + 1];
+            System.arraycopy(values, 0, copy, 0, at);
+            copy[at] = value;
+            System.arraycopy(values, at, copy, at + 1, values.length - at);
+            return copy;
+        }
+
+        private static String[] delete(String[] values, int at) {
+            String[] copy = new String[values.length - 1];
+            System.arraycopy(values, 0, copy, 0, at);
+            System.arraycopy(values, at + 1, copy, at, values.length - at - 1);
+            return copy;
+        }
+
+        // index of the first key that is not before the given one
+        private static int lowerBound(String[] keys, String key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
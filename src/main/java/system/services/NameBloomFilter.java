@@ -0,0 +1,52 @@
+package system.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over names, ignoring case. It answers "never added" for certain, and "maybe added" with a false
+ * positive rate of about 1% while it holds no more than the capacity it was sized for. Names cannot be taken out again,
+ * so a deleted or renamed name keeps answering "maybe" until the filter is rebuilt.
+ */
+class NameBloomFilter {
+
+    private static final int HASHES = 7;
+
+    // bits per name for a 1% false positive rate with 7 hashes
+    private static final int BITS_PER_NAME = 10;
+
+    private final AtomicLongArray words;
+    private final long bits;
+
+    NameBloomFilter(int capacity) {
+        long wanted = Math.max(64, (long) Math.max(1, capacity) * BITS_PER_NAME);
+        this.words = new AtomicLongArray((int) ((wanted + 63) / 64));
+        this.bits = words.length() * 64L;
+    }
+
+    void add(String name) {
+        // the two halves of the hash are combined into the probe positions
+        long hash = NameHash.of(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            // a plain read-modify-write could drop a bit another thread set in the same word
+            words.getAndAccumulate(word, mask, (current, set) -> current | set);
+        }
+    }
+
+    boolean mightContain(String name) {
+        long hash = NameHash.of(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,28 @@
+package system.services;
+
+import java.util.Locale;
+
+/**
+ * The 64-bit hash the name sketches share: FNV-1a over the lower-cased name, finished with murmur's mixer so every
+ * bit depends on every input bit. {@link HyperLogLog} keeps its registers in the database, so this must not change.
+ */
+final class NameHash {
+
+    private NameHash() {
+    }
+
+    static long of(String name) {
+        String normalized = name.toLowerCase(Locale.ROOT);
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
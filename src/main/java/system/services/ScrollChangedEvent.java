@@ -0,0 +1,8 @@
+package system.services;
+
+/**
+ * Published when a scroll's content is replaced or the scroll is deleted. Listeners re-read the scroll, so events
+ * that arrive out of order still leave them with its latest state.
+ */
+public record ScrollChangedEvent(int scrollId) {
+}
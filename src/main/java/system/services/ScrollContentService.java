@@ -0,0 +1,203 @@
+package system.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+import system.models.ContentBlob;
+import system.models.ContentChunk;
+import system.repositories.ContentBlobRepository;
+import system.repositories.ContentChunkRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@RequiredArgsConstructor
+public class ScrollContentService {
+
+    private final ContentStore contentStore;
+    private final ContentBlobRepository contentBlobRepository;
+    private final ContentCompressionPolicy compressionPolicy;
+    private final ContentChunkRepository contentChunkRepository;
+    private final ContentChunker contentChunker;
+
+    /**
+     * Streams an upload to a temporary file, hashing it on the way through, so the file is never held in memory.
+     */
+    public StagedContent stage(InputStream in, String contentType) throws IOException {
+        Path file = Files.createTempFile("scroll-", ".upload");
+        try (DigestInputStream digestIn = new DigestInputStream(in, sha256())) {
+            long length = Files.copy(digestIn, file, StandardCopyOption.REPLACE_EXISTING);
+            return prepare(file, length, HexFormat.of().formatHex(digestIn.getMessageDigest().digest()), contentType);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Takes over the file the container spooled a form upload to and hashes it in place. The upload is handed over as
+     * a {@link java.io.File}, which goes to {@code Part.write} and lets the container rename its spooled file instead
+     * of copying it; the {@link Path} overload always copies.
+     */
+    public StagedContent stage(MultipartFile upload) throws IOException {
+        Path file = Files.createTempFile("scroll-", ".upload");
+        try {
+            upload.transferTo(file.toFile());
+            return stage(file, upload.getContentType());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Hashes a file that is already on disk, such as an assembled upload session. The file itself becomes the staged
+     * copy, so it is consumed by {@link #commit} or {@link #discard}.
+     */
+    public StagedContent stage(Path file, String contentType) throws IOException {
+        try (DigestInputStream digestIn = new DigestInputStream(Files.newInputStream(file), sha256())) {
+            long length = digestIn.transferTo(OutputStream.nullOutputStream());
+            return prepare(file, length, HexFormat.of().formatHex(digestIn.getMessageDigest().digest()), contentType);
+        }
+    }
+
+    /**
+     * Adds a reference to the blob with the staged content's hash, storing the bytes only if no scroll has the same
+     * content yet. Everything that reads the file was done when it was staged, so the transaction only covers the
+     * reference count, the rows and handing the file to the store. The temporary files are removed either way.
+     */
+    @Transactional
+    public void commit(StagedContent staged) {
+        try {
+            if (contentBlobRepository.addReference(staged.sha256()) > 0) {
+                return;
+            }
+            StagedContent stored = staged.stored();
+            // the row goes in before the bytes, so a concurrent upload of the same content waits for this one and
+            // then takes a reference, instead of both storing it and one failing on the key
+            ContentBlob blob = ContentBlob.builder()
+                    .hash(staged.sha256())
+                    .length(staged.length())
+                    .encoding(staged.compressed() != null ? StoredContent.GZIP : null)
+                    .storedLength(stored.length())
+                    .refCount(1)
+                    .createdAt(LocalDateTime.now())
+                    .build();
+            while (!contentBlobRepository.insertIfAbsent(blob)) {
+                if (contentBlobRepository.addReference(staged.sha256()) > 0) {
+                    return;
+                }
+                // the other blob lost its last reference in between, so this one is stored after all
+            }
+            contentChunkRepository.saveAll(staged.chunks());
+            contentStore.write(staged.sha256(), stored);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            discard(staged);
+        }
+    }
+
+    public void discard(StagedContent staged) {
+        try {
+            Files.deleteIfExists(staged.file());
+        } catch (IOException ignored) {
+        }
+        if (staged.compressed() != null) {
+            discard(staged.compressed());
+        }
+    }
+
+    public Optional<StoredContent> load(String hash) {
+        if (hash == null) {
+            return Optional.empty();
+        }
+        return contentBlobRepository.findById(hash).flatMap(blob -> contentStore.read(hash)
+                .map(resource -> new StoredContent(resource, blob.getEncoding(), blob.getLength())));
+    }
+
+    /**
+     * Drops one reference to a blob and frees its bytes once no scroll uses it any more.
+     */
+    @Transactional
+    public void release(String hash) {
+        if (hash == null) {
+            return;
+        }
+        contentBlobRepository.removeReference(hash);
+        if (contentBlobRepository.deleteIfUnreferenced(hash) > 0) {
+            contentChunkRepository.deleteByBlobHash(hash);
+            contentStore.delete(hash);
+        }
+    }
+
+    /**
+     * Checks the stored bytes of a blob against the chunk checksums recorded when it was written.
+     *
+     * @return indexes of the chunks that failed, empty when the content is intact
+     */
+    public List<Integer> verify(String hash) {
+        List<ContentChunk> chunks = contentChunkRepository.findByBlobHashOrderByChunkIndex(hash);
+        return contentStore.read(hash)
+                .map(content -> contentChunker.verify(chunks, content))
+                .orElseGet(() -> chunks.stream().map(ContentChunk::getChunkIndex).toList());
+    }
+
+    /**
+     * Gzips content of a compressible type, keeping the copy only if it saves enough, and checksums the chunks of the
+     * file that will be stored. Both read the whole file, so they are done here rather than in {@link #commit}.
+     */
+    private StagedContent prepare(Path file, long length, String sha256, String contentType) throws IOException {
+        StagedContent compressed = null;
+        try {
+            if (compressionPolicy.isCompressible(contentType)) {
+                compressed = compress(file, sha256);
+                if (!compressionPolicy.isWorthKeeping(length, compressed.length())) {
+                    discard(compressed);
+                    compressed = null;
+                }
+            }
+            Path stored = compressed != null ? compressed.file() : file;
+            return new StagedContent(file, length, sha256, compressed, contentChunker.index(sha256, stored));
+        } catch (IOException | RuntimeException e) {
+            if (compressed != null) {
+                discard(compressed);
+            }
+            throw e;
+        }
+    }
+
+    private StagedContent compress(Path source, String sha256) throws IOException {
+        Path file = Files.createTempFile("scroll-", ".gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            Files.copy(source, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new StagedContent(file, Files.size(file), sha256);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
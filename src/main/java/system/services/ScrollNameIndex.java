@@ -0,0 +1,118 @@
+package system.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import system.repositories.ScrollRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory trigram index over scroll names for case-insensitive substring search. A name containing the search text
+ * contains every trigram of it, so intersecting the trigrams' id sets leaves a few candidates to check, where the
+ * database would have to scan every name for a LIKE '%text%'.
+ */
+@Component
+@RequiredArgsConstructor
+public class ScrollNameIndex {
+
+    private static final int GRAM = 3;
+
+    private final ScrollRepository scrollRepository;
+
+    // trigram -> ids of the scrolls whose name contains it
+    private final Map<String, Set<Integer>> postings = new ConcurrentHashMap<>();
+
+    // id -> lower-cased name, to confirm candidates and to find the old trigrams on a rename
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    // writers hold the lock, so changes committed while the index loads are applied after the load and win
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        postings.clear();
+        names.clear();
+        for (ScrollRepository.IdAndName scroll : scrollRepository.findAllNames()) {
+            add(scroll.getId(), scroll.getName());
+        }
+        ready = true;
+    }
+
+    /**
+     * Indexes a scroll under its current name, dropping its old name. Inside a transaction this waits for the commit.
+     */
+    public void put(int id, String name) {
+        AfterCommit.run(() -> replace(id, name));
+    }
+
+    public void remove(int id) {
+        AfterCommit.run(() -> replace(id, null));
+    }
+
+    /**
+     * Ids of the scrolls whose name contains the text, ignoring case, or empty if the index has not been built yet.
+     */
+    public Optional<Set<Integer>> search(String text) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        String needle = normalize(text);
+        List<Set<Integer>> lists = new ArrayList<>();
+        for (String gram : trigrams(needle)) {
+            lists.add(postings.getOrDefault(gram, Set.of()));
+        }
+        // walk the rarest trigram and probe the rest, or every name when the text is shorter than a trigram
+        lists.sort(Comparator.comparingInt(Set::size));
+        Collection<Integer> candidates = lists.isEmpty() ? names.keySet() : lists.get(0);
+        List<Set<Integer>> others = lists.isEmpty() ? List.of() : lists.subList(1, lists.size());
+
+        Set<Integer> matches = new HashSet<>();
+        for (Integer id : candidates) {
+            if (others.stream().allMatch(ids -> ids.contains(id))) {
+                String name = names.get(id);
+                if (name != null && name.contains(needle)) {
+                    matches.add(id);
+                }
+            }
+        }
+        return Optional.of(matches);
+    }
+
+    private synchronized void replace(int id, String name) {
+        String old = names.remove(id);
+        if (old != null) {
+            for (String gram : trigrams(old)) {
+                postings.computeIfPresent(gram, (key, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+        if (name != null) {
+            add(id, name);
+        }
+    }
+
+    private void add(int id, String name) {
+        String normalized = normalize(name);
+        names.put(id, normalized);
+        for (String gram : trigrams(normalized)) {
+            postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
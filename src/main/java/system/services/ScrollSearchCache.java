@@ -0,0 +1,152 @@
+package system.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import system.models.Scroll;
+import system.models.ScrollPage;
+import system.models.ScrollSearch;
+import system.models.ScrollSort;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Least recently used cache of search result pages, keyed by the normalized search and cursor. Entries expire after
+ * the configured time. They are also dropped when a saved or deleted scroll is on the cached page, or could match the
+ * search and so move into it. Download counts are not written through save, so cached counts can lag by up to the
+ * expiry time.
+ */
+@Component
+public class ScrollSearchCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    // access ordered, so the eldest entry is the least recently used one. Guarded by this
+    private final Map<Key, Entry> entries;
+
+    // bumped on every eviction, a result computed across a bump may be stale and is not kept. Guarded by this
+    private long generation;
+
+    public ScrollSearchCache(@Value("${vsas.search-cache.max-entries:1000}") int maxEntries,
+                             @Value("${vsas.search-cache.ttl:PT1M}") Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > ScrollSearchCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * The cached page for the search, or the page the loader finds for its normalized form.
+     */
+    public ScrollPage get(ScrollSearch search, String cursor, Function<ScrollSearch, ScrollPage> loader) {
+        ScrollSearch normalized = normalize(search);
+        Key key = Key.of(normalized, cursor);
+        long seen;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+                return entry.page();
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+            seen = generation;
+        }
+
+        ScrollPage page = loader.apply(normalized);
+        synchronized (this) {
+            if (generation == seen && maxEntries > 0) {
+                entries.put(key, new Entry(page, System.nanoTime() + ttlNanos));
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Drops the pages the scroll is on or could now appear on. Inside a transaction this waits for the commit.
+     */
+    public void evict(Scroll scroll) {
+        AfterCommit.run(() -> evictMatching(scroll));
+    }
+
+    // the text index catches up after the commit, so searches by content are dropped again once it has
+    public synchronized void evictTextSearches() {
+        generation++;
+        entries.keySet().removeIf(key -> key.text() != null);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void evictMatching(Scroll scroll) {
+        generation++;
+        entries.entrySet().removeIf(entry -> contains(entry.getValue().page(), scroll.getId())
+                || couldMatch(entry.getKey(), scroll));
+    }
+
+    private static boolean contains(ScrollPage page, int scrollId) {
+        return page.scrolls().stream().anyMatch(summary -> summary.getId() == scrollId);
+    }
+
+    // whether the scroll passes every filter of the search, the content text is not known here so it always passes
+    private static boolean couldMatch(Key key, Scroll scroll) {
+        LocalDateTime createdAt = scroll.getCreatedAt();
+        boolean passwordProtected = scroll.getPassword() != null && !scroll.getPassword().isEmpty();
+        return (key.scrollId() == null || key.scrollId() == scroll.getId())
+                && (key.uploaderId() == null || (scroll.getUser() != null && key.uploaderId() == scroll.getUser().getId()))
+                && (key.name() == null || (scroll.getName() != null && normalize(scroll.getName()).contains(key.name())))
+                && (key.createdFrom() == null || createdAt == null || !createdAt.isBefore(key.createdFrom()))
+                && (key.createdTo() == null || createdAt == null || !createdAt.isAfter(key.createdTo()))
+                && (key.minDownloads() == null || scroll.getDownloads() >= key.minDownloads())
+                && (key.maxDownloads() == null || scroll.getDownloads() <= key.maxDownloads())
+                && (key.passwordProtected() == null || key.passwordProtected() == passwordProtected);
+    }
+
+    // name and text are matched ignoring case, and text only by its words, so spellings that differ only in case or
+    // spacing share an entry
+    private static ScrollSearch normalize(ScrollSearch search) {
+        String name = search.getName() == null || search.getName().isEmpty() ? null : normalize(search.getName());
+        String text = search.getText() == null || search.getText().isBlank()
+                ? null : normalize(search.getText().trim().replaceAll("\\s+", " "));
+        return ScrollSearch.builder()
+                .scrollId(search.getScrollId())
+                .uploaderId(search.getUploaderId())
+                .name(name)
+                .createdFrom(search.getCreatedFrom())
+                .createdTo(search.getCreatedTo())
+                .minDownloads(search.getMinDownloads())
+                .maxDownloads(search.getMaxDownloads())
+                .passwordProtected(search.getPasswordProtected())
+                .text(text)
+                .sort(search.getSort() != null ? search.getSort() : ScrollSort.RECENT)
+                .build();
+    }
+
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private record Key(Integer scrollId, Integer uploaderId, String name, LocalDateTime createdFrom,
+                       LocalDateTime createdTo, Integer minDownloads, Integer maxDownloads, Boolean passwordProtected,
+                       String text, ScrollSort sort, String cursor) {
+
+        static Key of(ScrollSearch search, String cursor) {
+            return new Key(search.getScrollId(), search.getUploaderId(), search.getName(), search.getCreatedFrom(),
+                    search.getCreatedTo(), search.getMinDownloads(), search.getMaxDownloads(),
+                    search.getPasswordProtected(), search.getText(), search.getSort(), cursor);
+        }
+    }
+
+    private record Entry(ScrollPage page, long expiresAt) {
+    }
+}
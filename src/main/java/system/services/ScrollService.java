@@ -2,74 +2,241 @@ package system.services;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.cglib.core.Local;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import system.models.DownloadAdjustment;
+import system.models.DownloadWindow;
 import system.models.Scroll;
+import system.models.ScrollCursor;
+import system.models.ScrollPage;
+import system.models.ScrollRanking;
+import system.models.ScrollSearch;
+import system.models.ScrollSort;
+import system.models.ScrollSummary;
+import system.models.TextCursor;
 import system.repositories.ScrollRepository;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ScrollService {
 
     private final ScrollRepository scrollRepository;
+    private final ScrollContentService scrollContentService;
+    private final ScrollNameIndex scrollNameIndex;
+    private final ScrollTextIndex scrollTextIndex;
+    private final TakenNameFilter takenNameFilter;
+    private final NameAutocompleteIndex nameAutocompleteIndex;
+    private final ScrollSearchCache scrollSearchCache;
+    private final DownloadCounter downloadCounter;
+    private final DownloadJournal downloadJournal;
+    private final DownloadLeaderboard downloadLeaderboard;
+    private final UniqueDownloaders uniqueDownloaders;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd MMM yyyy - hh:mm a");
 
+    static final int PAGE_SIZE = 25;
+
+    // beyond this many name index matches the ids are not worth sending to the database. Text matches, which can't
+    // fall back to a LIKE scan, are read at most this many at a time
+    static final int MAX_INDEXED_MATCHES = 1000;
+
     public boolean nameExists(String name) {
-        return scrollRepository.findByNameIgnoreCase(name).isPresent();
+        // only a name the filter might have seen needs the query
+        return takenNameFilter.mightHaveScroll(name) && scrollRepository.findByNameIgnoreCase(name).isPresent();
     }
 
     public Optional<Scroll> findById(int id) {
         return scrollRepository.findById(id).map(this::formatScrollDates);
     }
 
-    public List<Scroll> findAll() {
-        List<Scroll> scrolls = scrollRepository.findAll();
-        scrolls.forEach(this::formatScrollDates);
-        return scrolls;
+    public Optional<StoredContent> findContent(Scroll scroll) {
+        return scrollContentService.load(scroll.getContentHash());
     }
 
-    public List<Scroll> findByName(String name){
-        return scrollRepository.findByNameContainingIgnoreCase(name);
+    /**
+     * A page of every scroll in the given order, starting after the cursor from the previous page.
+     */
+    public ScrollPage findPage(ScrollSort sort, String cursor) {
+        return page(ScrollSearch.builder().sort(sort).build(), cursor);
     }
 
-    public List<Scroll> findByUserID(int userId){
-        return scrollRepository.findByUserId(userId);
+    /**
+     * Number of scrolls each of the users uploaded, users without scrolls are left out.
+     */
+    public Map<Integer, Long> countByUploader(Collection<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        return scrollRepository.countByUserIdIn(userIds).stream()
+                .collect(Collectors.toMap(ScrollRepository.UploaderCount::getUserId,
+                        ScrollRepository.UploaderCount::getScrollCount));
     }
 
-    public List<Scroll> findByCreatedAtAfter(LocalDateTime date){
-        return scrollRepository.findByCreatedAtAfter(date);
+    /**
+     * A page of search results matching every filter given, in one query. Name and content text are looked up in
+     * their indexes first and narrow the query to the scrolls found there. A search without any filter finds nothing.
+     * Pages are served from {@link ScrollSearchCache} while no change to a scroll could have altered them.
+     */
+    public ScrollPage searchScrolls(ScrollSearch search, String cursor) {
+        if (!hasFilter(search)) {
+            return ScrollPage.empty();
+        }
+        return scrollSearchCache.get(search, cursor, normalized -> runSearch(normalized, cursor));
+    }
+
+    private ScrollPage runSearch(ScrollSearch search, String cursor) {
+        ScrollSearch.ScrollSearchBuilder applied = ScrollSearch.builder()
+                .sort(search.getSort())
+                .scrollId(search.getScrollId())
+                .uploaderId(search.getUploaderId())
+                .createdFrom(search.getCreatedFrom())
+                .createdTo(search.getCreatedTo())
+                .minDownloads(search.getMinDownloads())
+                .maxDownloads(search.getMaxDownloads())
+                .passwordProtected(search.getPasswordProtected());
+
+        Set<Integer> ids = null;
+        if (search.getName() != null && !search.getName().isEmpty()) {
+            Optional<Set<Integer>> matches = scrollNameIndex.search(search.getName());
+            if (matches.isPresent() && matches.get().size() <= MAX_INDEXED_MATCHES) {
+                ids = new HashSet<>(matches.get());
+            } else {
+                // the index is still loading, or the text matches so many scrolls that the LIKE scan is no worse
+                applied.name(search.getName());
+            }
+        }
+        if (search.getText() != null && !search.getText().isBlank()) {
+            return textPage(search, applied, ids, cursor);
+        }
+        if (ids != null) {
+            if (ids.isEmpty()) {
+                return ScrollPage.empty();
+            }
+            applied.ids(ids);
+        }
+        return page(applied.build(), cursor);
     }
 
-    public List<Scroll> findByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate){
-        return scrollRepository.findByCreatedAtBetween(startDate, endDate);
+    private static boolean hasFilter(ScrollSearch search) {
+        return search.getScrollId() != null
+                || search.getUploaderId() != null
+                || (search.getName() != null && !search.getName().isEmpty())
+                || search.getCreatedFrom() != null
+                || search.getCreatedTo() != null
+                || search.getMinDownloads() != null
+                || search.getMaxDownloads() != null
+                || search.getPasswordProtected() != null
+                || (search.getText() != null && !search.getText().isBlank());
     }
 
-    public List<Scroll> searchScrolls(Integer userId, Integer scrollId, String name, LocalDateTime startDate, LocalDateTime endDate) {
+    private ScrollPage page(ScrollSearch search, String cursor) {
+        ScrollSort sort = search.getSort() != null ? search.getSort() : ScrollSort.RECENT;
+        // one row more than a page tells whether another page follows
+        List<ScrollSummary> rows = scrollRepository.findSummaryPage(search, ScrollCursor.decode(cursor, sort), PAGE_SIZE + 1);
+        return page(rows, sort);
+    }
 
-        if (scrollId != null){
-            return scrollRepository.findById(scrollId).stream().toList();
+    /**
+     * A page of the scrolls whose text matches, best matches first; relevance takes the place of the listing order.
+     * Matches are read from the text index a batch at a time, continuing after the cursor, and each batch is narrowed
+     * by the other filters in one query. Reading stops once the page is full, so a page costs the same however many
+     * scrolls match. Batches grow while the filters leave too few of their matches.
+     */
+    private ScrollPage textPage(ScrollSearch search, ScrollSearch.ScrollSearchBuilder applied, Set<Integer> nameMatches,
+                                String cursor) {
+        TextCursor after = TextCursor.decode(cursor);
+        List<ScrollSummary> rows = new ArrayList<>();
+        List<TextCursor> positions = new ArrayList<>();
+        int batchSize = PAGE_SIZE + 1;
+        // one row more than a page tells whether another page follows
+        while (rows.size() <= PAGE_SIZE) {
+            List<TextCursor> matches = scrollTextIndex.search(search.getText(), after, batchSize);
+            Map<Integer, TextCursor> candidates = new LinkedHashMap<>();
+            for (TextCursor match : matches) {
+                if (nameMatches == null || nameMatches.contains(match.id())) {
+                    candidates.put(match.id(), match);
+                }
+            }
+            if (!candidates.isEmpty()) {
+                Map<Integer, ScrollSummary> found = new HashMap<>();
+                scrollRepository.findSummaryPage(applied.ids(candidates.keySet()).build(), null, candidates.size())
+                        .forEach(row -> found.put(row.getId(), row));
+                for (TextCursor match : candidates.values()) {
+                    ScrollSummary row = found.get(match.id());
+                    if (row != null && rows.size() <= PAGE_SIZE) {
+                        rows.add(row);
+                        positions.add(match);
+                    }
+                }
+            }
+            if (matches.size() < batchSize) {
+                break;
+            }
+            after = matches.get(matches.size() - 1);
+            batchSize = Math.min(batchSize * 2, MAX_INDEXED_MATCHES);
         }
 
-        List<Scroll> result = new ArrayList<>();
-
-        if (userId != null) {
-            result = scrollRepository.findByUserId(userId);
-        } else if (name != null && !name.isEmpty()) {
-            result = scrollRepository.findByNameContainingIgnoreCase(name);
-        } else if (startDate != null && endDate != null) {
-            result = scrollRepository.findByCreatedAtBetween(startDate, endDate);
+        String nextCursor = null;
+        if (rows.size() > PAGE_SIZE) {
+            rows = rows.subList(0, PAGE_SIZE);
+            nextCursor = positions.get(PAGE_SIZE - 1).encode();
         }
+        rows.forEach(this::formatSummaryDates);
+        return new ScrollPage(rows, nextCursor);
+    }
 
-        return result;
+    private ScrollPage page(List<ScrollSummary> rows, ScrollSort sort) {
+        String nextCursor = null;
+        if (rows.size() > PAGE_SIZE) {
+            rows = rows.subList(0, PAGE_SIZE);
+            nextCursor = ScrollCursor.after(sort, rows.get(rows.size() - 1)).encode();
+        }
+        rows.forEach(this::formatSummaryDates);
+        return new ScrollPage(rows, nextCursor);
     }
 
+    /**
+     * Saves a scroll along with the file attached to it, if any. The file is copied and hashed before the transaction
+     * starts, so no connection is held while a large upload is read.
+     */
     public Scroll save(Scroll scroll) {
+        if (scroll.getContentFile() == null || scroll.getContentFile().isEmpty()) {
+            return transactionTemplate.execute(status -> save(scroll, null));
+        }
+        StagedContent staged;
+        try {
+            staged = scrollContentService.stage(scroll.getContentFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            return transactionTemplate.execute(status -> save(scroll, staged));
+        } finally {
+            scrollContentService.discard(staged);
+        }
+    }
+
+    @Transactional
+    public Scroll save(Scroll scroll, StagedContent staged) {
         if (scroll.getId() == 0) {
             // for new scroll
             scroll.setCreatedAt(LocalDateTime.now());
@@ -78,7 +245,79 @@ public class ScrollService {
             // if scroll exists but being updated
             scroll.setUpdatedAt(LocalDateTime.now());
         }
-        return scrollRepository.save(scroll);
+
+        takenNameFilter.addScroll(scroll.getName());
+
+        // content is only written when a new file was attached
+        if (staged == null) {
+            Scroll savedScroll = scrollRepository.save(scroll);
+            scrollNameIndex.put(scroll.getId(), scroll.getName());
+            nameAutocompleteIndex.putScroll(scroll.getId(), scroll.getName());
+            scrollSearchCache.evict(scroll);
+            return savedScroll;
+        }
+        try {
+            String previousHash = scroll.getContentHash();
+            scroll.setContentLength(staged.length());
+            scroll.setContentHash(staged.sha256());
+            Scroll savedScroll = scrollRepository.save(scroll);
+            scrollNameIndex.put(scroll.getId(), scroll.getName());
+            nameAutocompleteIndex.putScroll(scroll.getId(), scroll.getName());
+            scrollSearchCache.evict(scroll);
+
+            // re-uploading the same file keeps the reference the scroll already holds
+            if (!staged.sha256().equals(previousHash)) {
+                scrollContentService.commit(staged);
+                scrollContentService.release(previousHash);
+                eventPublisher.publishEvent(new ScrollChangedEvent(scroll.getId()));
+            }
+            return savedScroll;
+        } finally {
+            scrollContentService.discard(staged);
+        }
+    }
+
+    /**
+     * Counts a download and logs it for the statistics. Both reach the database with their next flush, and leave
+     * updatedAt, which downloads validate their cached copies against, as it is.
+     */
+    public void recordDownload(Scroll scroll, String username) {
+        downloadCounter.record(scroll.getId());
+        downloadJournal.append(scroll.getId(), username, scroll.getContentLength());
+        downloadLeaderboard.record(scroll.getId());
+        uniqueDownloaders.record(scroll.getId(), username);
+    }
+
+    /**
+     * Applies download count corrections in one transaction with set-based updates, never loading a scroll. Several
+     * corrections to the same scroll are added up first.
+     *
+     * @return the number of scrolls whose count was adjusted
+     */
+    public int adjustDownloads(Collection<DownloadAdjustment> adjustments) {
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (DownloadAdjustment adjustment : adjustments) {
+            deltas.merge(adjustment.scrollId(), adjustment.delta(), Integer::sum);
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        return deltas.isEmpty() ? 0 : scrollRepository.adjustDownloads(deltas);
+    }
+
+    /**
+     * The most downloaded scrolls over the window, ranked by the leaderboard: in memory for the hour and the day, off
+     * the downloads index for all time. Only their names are read from the scroll rows.
+     */
+    public List<ScrollRanking> findMostDownloaded(DownloadWindow window, int limit) {
+        Map<Integer, Long> top = downloadLeaderboard.top(window, limit);
+        if (top.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, String> names = scrollRepository.findNamesByIdIn(top.keySet()).stream()
+                .collect(Collectors.toMap(ScrollRepository.IdAndName::getId, ScrollRepository.IdAndName::getName));
+        return top.entrySet().stream()
+                .filter(entry -> names.containsKey(entry.getKey()))
+                .map(entry -> new ScrollRanking(entry.getKey(), names.get(entry.getKey()), entry.getValue()))
+                .toList();
     }
 
     private Scroll formatScrollDates(Scroll scroll){
@@ -91,7 +330,24 @@ public class ScrollService {
         return scroll;
     }
 
+    private ScrollSummary formatSummaryDates(ScrollSummary summary) {
+        if (summary.getCreatedAt() != null) {
+            summary.setFormattedCreatedAt(summary.getCreatedAt().format(formatter));
+        }
+        if (summary.getUpdatedAt() != null) {
+            summary.setFormattedUpdatedAt(summary.getUpdatedAt().format(formatter));
+        }
+        return summary;
+    }
+
+    @Transactional
     public void delete(Scroll scroll) {
+        scrollContentService.release(scroll.getContentHash());
         scrollRepository.delete(scroll);
+        scrollNameIndex.remove(scroll.getId());
+        nameAutocompleteIndex.removeScroll(scroll.getId());
+        downloadLeaderboard.remove(scroll.getId());
+        scrollSearchCache.evict(scroll);
+        eventPublisher.publishEvent(new ScrollChangedEvent(scroll.getId()));
     }
 }
@@ -0,0 +1,232 @@
+package system.services;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+import system.models.Scroll;
+import system.models.TextCursor;
+import system.repositories.ScrollRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Lucene index over the text of text-like scrolls, kept on local disk. It is updated on a background thread once the
+ * transaction that changed a scroll has committed, so uploads never wait for it.
+ */
+@Service
+public class ScrollTextIndex {
+
+    private static final String ID = "id";
+    private static final String ID_ORDER = "idOrder";
+    private static final String CONTENT = "content";
+    // commit data key set once every scroll stored before the index existed has been indexed, holding the format
+    private static final String INITIAL_INDEX_BUILT = "initialIndexBuilt";
+    // raised when entries gain a field older ones lack, which has the initial build run again
+    private static final String INDEX_FORMAT = "2";
+    // the initial build commits this many scrolls at a time instead of every scroll on its own
+    private static final int BUILD_BATCH = 1000;
+    // relevance first, then the newest scroll, so every match has a fixed position a page can continue from
+    private static final Sort RANKING = new Sort(SortField.FIELD_SCORE,
+            new SortField(ID_ORDER, SortField.Type.INT, true));
+
+    private final ScrollRepository scrollRepository;
+    private final ScrollContentService scrollContentService;
+    private final ScrollSearchCache scrollSearchCache;
+    private final List<MediaType> textTypes;
+    private final int maxBytes;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    public ScrollTextIndex(ScrollRepository scrollRepository, ScrollContentService scrollContentService,
+                           ScrollSearchCache scrollSearchCache,
+                           @Value("${vsas.fulltext.root:./data/fulltext}") String root,
+                           @Value("${vsas.fulltext.types}") String textTypes,
+                           @Value("${vsas.fulltext.max-size:1MB}") DataSize maxSize) throws IOException {
+        this.scrollRepository = scrollRepository;
+        this.scrollContentService = scrollContentService;
+        this.scrollSearchCache = scrollSearchCache;
+        this.textTypes = MediaType.parseMediaTypes(textTypes);
+        this.maxBytes = (int) maxSize.toBytes();
+        this.writer = new IndexWriter(FSDirectory.open(Files.createDirectories(Path.of(root))),
+                new IndexWriterConfig(analyzer).setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    @Async
+    @TransactionalEventListener
+    public void onScrollChanged(ScrollChangedEvent event) {
+        index(event.scrollId());
+    }
+
+    // scrolls stored before the index existed are added once, committed a batch at a time. The final commit records
+    // it, so a restart does not start over, even when none of the scrolls is text
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexExistingScrolls() throws IOException {
+        if (isInitialIndexBuilt()) {
+            return;
+        }
+        int pending = 0;
+        for (int scrollId : scrollRepository.findAllIds()) {
+            update(scrollId);
+            if (++pending == BUILD_BATCH) {
+                commit();
+                pending = 0;
+            }
+        }
+        writer.setLiveCommitData(Map.of(INITIAL_INDEX_BUILT, INDEX_FORMAT).entrySet());
+        commit();
+    }
+
+    /**
+     * Brings the scroll's entry up to date with what is stored now: its text, or no entry once it is deleted or no
+     * longer text.
+     */
+    public void index(int scrollId) {
+        try {
+            update(scrollId);
+            commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void update(int scrollId) throws IOException {
+        Term id = new Term(ID, String.valueOf(scrollId));
+        Optional<String> text = scrollRepository.findById(scrollId).flatMap(this::readText);
+        if (text.isPresent()) {
+            Document document = new Document();
+            document.add(new StringField(ID, id.text(), Field.Store.YES));
+            document.add(new NumericDocValuesField(ID_ORDER, scrollId));
+            document.add(new TextField(CONTENT, text.get(), Field.Store.NO));
+            writer.updateDocument(id, document);
+        } else {
+            writer.deleteDocuments(id);
+        }
+    }
+
+    private void commit() throws IOException {
+        writer.commit();
+        searcherManager.maybeRefresh();
+        scrollSearchCache.evictTextSearches();
+    }
+
+    /**
+     * Up to count scrolls containing every word of the text, best matches first, starting after the given match or
+     * from the best one when it is null. Only that many matches are collected however many there are. Scores shift a
+     * little as scrolls are indexed, so a page read after such a change may repeat or skip a match at its edge.
+     */
+    public List<TextCursor> search(String text, TextCursor after, int count) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        try (TokenStream tokens = analyzer.tokenStream(CONTENT, text)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                query.add(new TermQuery(new Term(CONTENT, term.toString())), BooleanClause.Occur.MUST);
+            }
+            tokens.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        BooleanQuery built = query.build();
+        if (built.clauses().isEmpty()) {
+            return List.of();
+        }
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                // the last document number ties with nothing past the cursor's own match, which is left out
+                FieldDoc from = after == null ? null : new FieldDoc(searcher.getIndexReader().maxDoc() - 1,
+                        after.score(), new Object[]{after.score(), after.id()});
+                ScoreDoc[] hits = searcher.searchAfter(from, built, count, RANKING, true).scoreDocs;
+                List<TextCursor> matches = new ArrayList<>(hits.length);
+                for (ScoreDoc hit : hits) {
+                    Object[] fields = ((FieldDoc) hit).fields;
+                    matches.add(new TextCursor((Float) fields[0], (Integer) fields[1]));
+                }
+                return matches;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isInitialIndexBuilt() {
+        Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+        if (commitData == null) {
+            return false;
+        }
+        for (Map.Entry<String, String> entry : commitData) {
+            if (entry.getKey().equals(INITIAL_INDEX_BUILT)) {
+                return entry.getValue().equals(INDEX_FORMAT);
+            }
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+    }
+
+    // the start of the scroll as UTF-8 text, if it is a text type
+    private Optional<String> readText(Scroll scroll) {
+        if (!isText(scroll.getContentType())) {
+            return Optional.empty();
+        }
+        return scrollContentService.load(scroll.getContentHash()).map(content -> {
+            try (InputStream in = content.decoded().getInputStream()) {
+                return new String(in.readNBytes(maxBytes), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private boolean isText(String contentType) {
+        if (contentType == null || contentType.isEmpty()) {
+            return false;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return textTypes.stream().anyMatch(type -> type.includes(mediaType));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+}
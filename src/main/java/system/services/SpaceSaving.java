@@ -0,0 +1,55 @@
+package system.services;
+
+import java.util.*;
+
+/**
+ * Space-Saving heavy-hitter sketch: keeps a fixed number of counters and hands the smallest one to an id it has no
+ * counter for, so every id downloaded more than total / capacity times is guaranteed to hold one. A counter overcounts
+ * its id by at most the count it took over. Not thread-safe.
+ */
+final class SpaceSaving {
+
+    record Counter(int id, long count, long error) {
+    }
+
+    private final int capacity;
+    private final Map<Integer, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(
+            Comparator.comparingLong(Counter::count).thenComparingInt(Counter::id));
+
+    SpaceSaving(int capacity) {
+        this.capacity = capacity;
+    }
+
+    void add(int id, long amount) {
+        Counter counter = counters.get(id);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter = new Counter(id, counter.count() + amount, counter.error());
+        } else if (counters.size() < capacity) {
+            counter = new Counter(id, amount, 0);
+        } else {
+            Counter smallest = byCount.pollFirst();
+            counters.remove(smallest.id());
+            counter = new Counter(id, smallest.count() + amount, smallest.count());
+        }
+        counters.put(id, counter);
+        byCount.add(counter);
+    }
+
+    void remove(int id) {
+        Counter counter = counters.remove(id);
+        if (counter != null) {
+            byCount.remove(counter);
+        }
+    }
+
+    Collection<Counter> counters() {
+        return counters.values();
+    }
+
+    void clear() {
+        counters.clear();
+        byCount.clear();
+    }
+}
@@ -0,0 +1,27 @@
+package system.services;
+
+import system.models.ContentChunk;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * An upload that has been streamed to a temporary file but not yet committed to the content store.
+ *
+ * @param compressed the gzipped copy to store instead of the file, or null when the file is stored as it is
+ * @param chunks     checksums of the chunks of whichever file is stored, worked out when the upload was staged
+ */
+public record StagedContent(Path file, long length, String sha256, StagedContent compressed,
+                            List<ContentChunk> chunks) {
+
+    public StagedContent(Path file, long length, String sha256) {
+        this(file, length, sha256, null, List.of());
+    }
+
+    /**
+     * The file that goes into the content store.
+     */
+    public StagedContent stored() {
+        return compressed != null ? compressed : this;
+    }
+}
@@ -0,0 +1,48 @@
+package system.services;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Content as it is kept in the store, possibly compressed.
+ *
+ * @param encoding "gzip" when the stored bytes are compressed, otherwise null
+ * @param length   length of the original, uncompressed content
+ */
+public record StoredContent(Resource resource, String encoding, long length) {
+
+    public static final String GZIP = "gzip";
+
+    public boolean isCompressed() {
+        return GZIP.equals(encoding);
+    }
+
+    /**
+     * The original bytes, decompressed on the fly if they were stored compressed.
+     */
+    public Resource decoded() {
+        if (!isCompressed()) {
+            return resource;
+        }
+        return new AbstractResource() {
+            @Override
+            public String getDescription() {
+                return "decompressed " + resource.getDescription();
+            }
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return new GZIPInputStream(resource.getInputStream());
+            }
+
+            @Override
+            public long contentLength() {
+                return length;
+            }
+        };
+    }
+}
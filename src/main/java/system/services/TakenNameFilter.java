@@ -0,0 +1,132 @@
+package system.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import system.repositories.ScrollRepository;
+import system.repositories.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bloom filters over the scroll names and usernames in use, so the existence checks on create and register can answer
+ * "not taken" without a query. Names are added before they are saved, which at worst leaves a false "maybe" behind a
+ * rolled back save. Deleted and renamed names are only dropped by the periodic rebuild.
+ */
+@Component
+@RequiredArgsConstructor
+public class TakenNameFilter {
+
+    // room for this many more names than are stored at rebuild time before the error rate starts to climb
+    private static final int HEADROOM = 10_000;
+
+    private final ScrollRepository scrollRepository;
+    private final UserRepository userRepository;
+
+    private final TakenNames scrollNames = new TakenNames();
+    private final TakenNames usernames = new TakenNames();
+
+    /**
+     * Reloads both filters from the database. Names whose save had not committed when the query ran are replayed into
+     * the new filters, which would otherwise report them as not taken.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${vsas.name-filter.rebuild-interval:PT6H}",
+            initialDelayString = "${vsas.name-filter.rebuild-interval:PT6H}")
+    public synchronized void rebuild() {
+        scrollNames.startRebuild();
+        usernames.startRebuild();
+        List<String> names = scrollRepository.findAllNames().stream().map(ScrollRepository.IdAndName::getName).toList();
+        scrollNames.finishRebuild(filterOf(names));
+        usernames.finishRebuild(filterOf(userRepository.findAllUsernames()));
+    }
+
+    public boolean mightHaveScroll(String name) {
+        return scrollNames.mightContain(name);
+    }
+
+    public void addScroll(String name) {
+        scrollNames.add(name);
+    }
+
+    public boolean mightHaveUser(String username) {
+        return usernames.mightContain(username);
+    }
+
+    public void addUser(String username) {
+        usernames.add(username);
+    }
+
+    private static NameBloomFilter filterOf(List<String> names) {
+        NameBloomFilter filter = new NameBloomFilter(names.size() * 2 + HEADROOM);
+        names.forEach(filter::add);
+        return filter;
+    }
+
+    /**
+     * One filter and the names that a rebuild's query may not see yet: those added in a transaction that is still
+     * running, and those added outside of one, which are kept until the next rebuild has taken them over.
+     */
+    private static final class TakenNames {
+
+        // null until the first rebuild, when every name is reported as possibly taken
+        private volatile NameBloomFilter filter;
+
+        private final List<String> uncommitted = new ArrayList<>();
+        private final List<String> untracked = new ArrayList<>();
+
+        // everything to replay into the filter being loaded, null when no rebuild is running
+        private List<String> replay;
+        private int untrackedReplayed;
+
+        boolean mightContain(String name) {
+            NameBloomFilter current = filter;
+            return current == null || name == null || current.mightContain(name);
+        }
+
+        void add(String name) {
+            if (name == null) {
+                return;
+            }
+            boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+            synchronized (this) {
+                if (filter != null) {
+                    filter.add(name);
+                }
+                if (replay != null) {
+                    replay.add(name);
+                }
+                (inTransaction ? uncommitted : untracked).add(name);
+            }
+            if (inTransaction) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        synchronized (TakenNames.this) {
+                            uncommitted.remove(name);
+                        }
+                    }
+                });
+            }
+        }
+
+        synchronized void startRebuild() {
+            replay = new ArrayList<>(uncommitted);
+            replay.addAll(untracked);
+            untrackedReplayed = untracked.size();
+        }
+
+        synchronized void finishRebuild(NameBloomFilter rebuilt) {
+            replay.forEach(rebuilt::add);
+            replay = null;
+            filter = rebuilt;
+            // later untracked adds stay for the next rebuild, the query may not have seen them either
+            untracked.subList(0, untrackedReplayed).clear();
+        }
+    }
+}
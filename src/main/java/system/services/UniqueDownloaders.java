@@ -0,0 +1,196 @@
+package system.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimated number of distinct users who downloaded each scroll. Every scroll gets one {@link HyperLogLog} sketch per
+ * day it is downloaded on, kept in memory and merged into the stored sketch for that day on each flush. A count over
+ * any run of days merges those days' sketches, so a user downloading on several of them is still counted once. Days
+ * older than the ones kept are folded into one rollup sketch per scroll by the flush, so counting a scroll's
+ * downloaders since its first download reads a bounded number of sketches.
+ */
+@Slf4j
+@Service
+public class UniqueDownloaders {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int daysKept;
+
+    // downloaders since the last flush, per scroll and day
+    private final Map<Key, HyperLogLog> pending = new ConcurrentHashMap<>();
+
+    // the days before this are in the rollup, null until the first rollup since startup
+    private LocalDate rolledUpBefore;
+
+    private record Key(int scrollId, LocalDate day) {
+    }
+
+    public UniqueDownloaders(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             @Value("${vsas.downloads.unique-days-kept:31}") int daysKept) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.daysKept = daysKept;
+    }
+
+    public void record(int scrollId, String username) {
+        if (username == null) {
+            return;
+        }
+        pending.compute(new Key(scrollId, LocalDate.now()), (key, sketch) -> {
+            HyperLogLog updated = sketch != null ? sketch : new HyperLogLog();
+            updated.add(username);
+            return updated;
+        });
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${vsas.downloads.flush-interval:PT5S}")
+    public synchronized void flush() {
+        Map<Key, HyperLogLog> batch = new HashMap<>();
+        for (Key key : pending.keySet()) {
+            HyperLogLog sketch = pending.remove(key);
+            if (sketch != null) {
+                batch.put(key, sketch);
+            }
+        }
+        if (!batch.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> batch.forEach(this::store));
+            } catch (DataAccessException e) {
+                // merging a sketch in twice changes nothing, so they can simply go back to be merged on the next flush
+                batch.forEach((key, sketch) -> pending.merge(key, sketch, HyperLogLog::merge));
+                log.warn("Could not store unique downloaders of {} scrolls, retrying on the next flush",
+                        batch.size(), e);
+            }
+        }
+        rollUp(LocalDate.now().minusDays(daysKept - 1L));
+    }
+
+    /**
+     * Merges each scroll's sketches of the days before the cutoff into its rollup and drops them. Once a day does
+     * anything, on the first flush after midnight.
+     */
+    synchronized void rollUp(LocalDate cutoff) {
+        if (cutoff.equals(rolledUpBefore)) {
+            return;
+        }
+        Date before = Date.valueOf(cutoff);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Integer> scrollIds = jdbcTemplate.queryForList(
+                        "select distinct scroll_id from download_uniques where day < ?", Integer.class, before);
+                for (int scrollId : scrollIds) {
+                    HyperLogLog merged = new HyperLogLog();
+                    jdbcTemplate.query("select registers from download_uniques where scroll_id = ? and day < ?",
+                            rs -> {
+                                merged.merge(HyperLogLog.fromBytes(rs.getBytes(1)));
+                            }, scrollId, before);
+                    storeRollup(scrollId, merged);
+                    jdbcTemplate.update("delete from download_uniques where scroll_id = ? and day < ?",
+                            scrollId, before);
+                }
+            });
+            rolledUpBefore = cutoff;
+        } catch (DataAccessException e) {
+            log.warn("Could not roll up unique downloaders before {}, retrying on the next flush", cutoff, e);
+        }
+    }
+
+    /**
+     * Distinct downloaders of each of the scrolls over the last days, today included, up to the number of days kept.
+     * Scrolls nobody downloaded are left out.
+     */
+    public Map<Integer, Long> count(Collection<Integer> scrollIds, int days) {
+        return estimate(scrollIds, LocalDate.now().minusDays(days - 1L));
+    }
+
+    /**
+     * Distinct downloaders of each of the scrolls since downloads were first counted this way.
+     */
+    public Map<Integer, Long> countEver(Collection<Integer> scrollIds) {
+        return estimate(scrollIds, null);
+    }
+
+    // from null counts every day
+    private Map<Integer, Long> estimate(Collection<Integer> scrollIds, LocalDate from) {
+        if (scrollIds.isEmpty()) {
+            return Map.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(scrollIds.size(), "?"));
+        List<Object> args = new ArrayList<>(scrollIds);
+        String sql = "select scroll_id, registers from download_uniques where scroll_id in (" + placeholders + ")";
+        if (from != null) {
+            sql += " and day >= ?";
+            args.add(Date.valueOf(from));
+        } else {
+            // one statement, so a rollup committing in between can't hide days from both halves
+            sql += " union all select scroll_id, registers from download_uniques_rollup where scroll_id in ("
+                    + placeholders + ")";
+            args.addAll(scrollIds);
+        }
+
+        Map<Integer, HyperLogLog> merged = new HashMap<>();
+        jdbcTemplate.query(sql,
+                rs -> {
+                    merged.merge(rs.getInt(1), HyperLogLog.fromBytes(rs.getBytes(2)), HyperLogLog::merge);
+                }, args.toArray());
+
+        // and the downloads not flushed yet
+        Set<Integer> wanted = new HashSet<>(scrollIds);
+        for (Key key : pending.keySet()) {
+            if (wanted.contains(key.scrollId()) && (from == null || !key.day().isBefore(from))) {
+                pending.computeIfPresent(key, (k, sketch) -> {
+                    merged.computeIfAbsent(k.scrollId(), id -> new HyperLogLog()).merge(sketch);
+                    return sketch;
+                });
+            }
+        }
+
+        Map<Integer, Long> counts = new HashMap<>();
+        merged.forEach((scrollId, sketch) -> counts.put(scrollId, sketch.estimate()));
+        return counts;
+    }
+
+    // merges the sketch into the stored one for its scroll and day, the row lock keeping another flush from racing it
+    private void store(Key key, HyperLogLog sketch) {
+        Date day = Date.valueOf(key.day());
+        List<byte[]> stored = jdbcTemplate.query(
+                "select registers from download_uniques where scroll_id = ? and day = ? for update",
+                (rs, row) -> rs.getBytes(1), key.scrollId(), day);
+        if (stored.isEmpty()) {
+            jdbcTemplate.update("insert into download_uniques (scroll_id, day, registers) values (?, ?, ?)",
+                    key.scrollId(), day, sketch.toBytes());
+        } else {
+            jdbcTemplate.update("update download_uniques set registers = ? where scroll_id = ? and day = ?",
+                    HyperLogLog.fromBytes(stored.get(0)).merge(sketch).toBytes(), key.scrollId(), day);
+        }
+    }
+
+    private void storeRollup(int scrollId, HyperLogLog sketch) {
+        List<byte[]> stored = jdbcTemplate.query(
+                "select registers from download_uniques_rollup where scroll_id = ? for update",
+                (rs, row) -> rs.getBytes(1), scrollId);
+        if (stored.isEmpty()) {
+            jdbcTemplate.update("insert into download_uniques_rollup (scroll_id, registers) values (?, ?)",
+                    scrollId, sketch.toBytes());
+        } else {
+            jdbcTemplate.update("update download_uniques_rollup set registers = ? where scroll_id = ?",
+                    HyperLogLog.fromBytes(stored.get(0)).merge(sketch).toBytes(), scrollId);
+        }
+    }
+}
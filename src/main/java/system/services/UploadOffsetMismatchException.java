@@ -0,0 +1,18 @@
+package system.services;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a chunk does not start where the upload session left off, typically after a chunk was lost or sent
+ * twice. The client should resume from {@link #getExpectedOffset()}.
+ */
+@Getter
+public class UploadOffsetMismatchException extends RuntimeException {
+
+    private final long expectedOffset;
+
+    public UploadOffsetMismatchException(long expectedOffset, long offset) {
+        super("Upload continues at offset " + expectedOffset + ", not " + offset);
+        this.expectedOffset = expectedOffset;
+    }
+}
@@ -0,0 +1,17 @@
+package system.services;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a user starts another upload while already holding as many open sessions as one user may have.
+ */
+@Getter
+public class UploadSessionLimitException extends RuntimeException {
+
+    private final int maxSessions;
+
+    public UploadSessionLimitException(int maxSessions) {
+        super("At most " + maxSessions + " uploads can be open at once");
+        this.maxSessions = maxSessions;
+    }
+}
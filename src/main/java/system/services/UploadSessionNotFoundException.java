@@ -0,0 +1,12 @@
+package system.services;
+
+/**
+ * Thrown when a chunk arrives for an upload session that was finished, aborted or expired after the request looked it
+ * up. There is nothing left to resume, the client has to start a new session.
+ */
+public class UploadSessionNotFoundException extends RuntimeException {
+
+    public UploadSessionNotFoundException(String id) {
+        super("Upload session " + id + " no longer exists");
+    }
+}
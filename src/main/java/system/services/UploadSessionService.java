@@ -0,0 +1,234 @@
+package system.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import system.models.Scroll;
+import system.models.UploadSession;
+import system.models.User;
+import system.repositories.UploadSessionRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable uploads: chunks are written straight into a per-session file at the offset the client sends, and
+ * finishing the session hands that file to {@link ScrollService#save(Scroll, StagedContent)}. Sessions that see no
+ * chunk for longer than the expiry are swept away together with their files.
+ */
+@Service
+public class UploadSessionService {
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final ScrollService scrollService;
+    private final ScrollContentService scrollContentService;
+    private final TransactionTemplate transactionTemplate;
+    private final Path root;
+    private final long maxSize;
+    private final Duration expiry;
+    private final int maxSessionsPerUser;
+
+    // chunks for the same session are written one at a time
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+    // and sessions for the same user are started one at a time, so the limit cannot be raced past
+    private final Map<Integer, Object> userLocks = new ConcurrentHashMap<>();
+
+    public UploadSessionService(UploadSessionRepository uploadSessionRepository, ScrollService scrollService,
+                                ScrollContentService scrollContentService, PlatformTransactionManager transactionManager,
+                                @Value("${vsas.upload.root:./data/uploads}") String root,
+                                @Value("${vsas.upload.max-size:1GB}") DataSize maxSize,
+                                @Value("${vsas.upload.session-expiry:P1D}") Duration expiry,
+                                @Value("${vsas.upload.max-sessions-per-user:5}") int maxSessionsPerUser)
+            throws IOException {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.scrollService = scrollService;
+        this.scrollContentService = scrollContentService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.root = Files.createDirectories(Path.of(root));
+        this.maxSize = maxSize.toBytes();
+        this.expiry = expiry;
+        this.maxSessionsPerUser = maxSessionsPerUser;
+    }
+
+    /**
+     * Starts a session. Every session may grow to the maximum size, so limiting the sessions a user holds open also
+     * bounds the spool space one account can take up before the sweep.
+     *
+     * @throws UploadSessionLimitException if the user already has the maximum number of sessions open
+     */
+    public UploadSession create(User user, String name, String fileName, String contentType, String password)
+            throws IOException {
+        synchronized (userLocks.computeIfAbsent(user.getId(), id -> new Object())) {
+            if (uploadSessionRepository.countByUserId(user.getId()) >= maxSessionsPerUser) {
+                throw new UploadSessionLimitException(maxSessionsPerUser);
+            }
+            UploadSession session = UploadSession.builder()
+                    .id(UUID.randomUUID().toString())
+                    .user(user)
+                    .name(name)
+                    .fileName(fileName)
+                    .contentType(contentType)
+                    .password(password)
+                    .createdAt(LocalDateTime.now())
+                    .updatedAt(LocalDateTime.now())
+                    .build();
+            Files.createFile(pathOf(session.getId()));
+            return uploadSessionRepository.save(session);
+        }
+    }
+
+    public Optional<UploadSession> find(String id, User user) {
+        return uploadSessionRepository.findByIdAndUserId(id, user.getId());
+    }
+
+    /**
+     * Writes one chunk at the given offset, which has to be where the session left off.
+     *
+     * @return the offset the next chunk should start at
+     * @throws UploadOffsetMismatchException if the offset is not the number of bytes received so far
+     * @throws UploadSessionNotFoundException if the session was finished, aborted or expired in the meantime
+     * @throws UploadTooLargeException if the chunk would take the upload past the maximum size
+     */
+    public long append(UploadSession session, long offset, InputStream in) throws IOException {
+        synchronized (lockOf(session.getId())) {
+            // re-read under the lock, another chunk may have landed since the session was looked up
+            UploadSession current = uploadSessionRepository.findById(session.getId())
+                    .orElseThrow(() -> new UploadSessionNotFoundException(session.getId()));
+            if (offset != current.getReceivedBytes()) {
+                throw new UploadOffsetMismatchException(current.getReceivedBytes(), offset);
+            }
+            try (FileChannel channel = FileChannel.open(pathOf(current.getId()), StandardOpenOption.WRITE)) {
+                // drops whatever part of an earlier chunk arrived before its connection broke
+                channel.truncate(offset);
+                // one byte past the limit is enough to tell the chunk is too large
+                long allowed = Math.max(maxSize - offset, 0);
+                long written = channel.transferFrom(Channels.newChannel(in), offset, allowed + 1);
+                if (written > allowed) {
+                    channel.truncate(offset);
+                    throw new UploadTooLargeException(maxSize);
+                }
+                current.setReceivedBytes(offset + written);
+            }
+            current.setUpdatedAt(LocalDateTime.now());
+            uploadSessionRepository.save(current);
+            return current.getReceivedBytes();
+        }
+    }
+
+    /**
+     * Turns the received bytes into a scroll and ends the session. The session file is only removed once the scroll
+     * is committed, so a save that fails, say on a name taken in the meantime, leaves the session to be retried or
+     * resumed. The lock is held until the commit, no chunk can land while the file is being saved.
+     *
+     * @throws UploadSessionNotFoundException if the session was finished, aborted or expired in the meantime
+     */
+    public Scroll finish(UploadSession session) {
+        synchronized (lockOf(session.getId())) {
+            // a concurrent finish or abort may already have ended the session
+            if (!uploadSessionRepository.existsById(session.getId())) {
+                throw new UploadSessionNotFoundException(session.getId());
+            }
+            Path file = pathOf(session.getId());
+            Path link = root.resolve(session.getId() + ".finishing");
+            try {
+                boolean linked = stageCopy(file, link);
+                try {
+                    StagedContent staged = scrollContentService.stage(link, session.getContentType());
+                    Scroll scroll = Scroll.builder()
+                            .name(session.getName())
+                            .fileName(session.getFileName())
+                            .contentType(session.getContentType())
+                            .password(session.getPassword())
+                            .user(session.getUser())
+                            .build();
+                    Scroll savedScroll = transactionTemplate.execute(status -> {
+                        Scroll saved = scrollService.save(scroll, staged);
+                        uploadSessionRepository.delete(session);
+                        return saved;
+                    });
+                    Files.deleteIfExists(file);
+                    locks.remove(session.getId());
+                    return savedScroll;
+                } catch (IOException | RuntimeException e) {
+                    if (linked) {
+                        // the link may have been moved into the content store before the rollback, give the session a
+                        // file of its own so later chunks do not write into that one
+                        Path copy = root.resolve(session.getId() + ".copy");
+                        Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+                        Files.move(copy, file, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    throw e;
+                } finally {
+                    Files.deleteIfExists(link);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public void abort(UploadSession session) throws IOException {
+        synchronized (lockOf(session.getId())) {
+            uploadSessionRepository.delete(session);
+            Files.deleteIfExists(pathOf(session.getId()));
+            locks.remove(session.getId());
+        }
+    }
+
+    /**
+     * Removes sessions that have not received a chunk for longer than the expiry, along with their files.
+     */
+    @Scheduled(fixedDelayString = "${vsas.upload.sweep-interval:PT1H}",
+            initialDelayString = "${vsas.upload.sweep-interval:PT1H}")
+    public void sweepExpired() throws IOException {
+        LocalDateTime cutoff = LocalDateTime.now().minus(expiry);
+        for (UploadSession expired : uploadSessionRepository.findByUpdatedAtBefore(cutoff)) {
+            synchronized (lockOf(expired.getId())) {
+                // a chunk may have arrived since the query
+                Optional<UploadSession> current = uploadSessionRepository.findById(expired.getId());
+                if (current.isPresent() && current.get().getUpdatedAt().isBefore(cutoff)) {
+                    uploadSessionRepository.delete(current.get());
+                    Files.deleteIfExists(pathOf(expired.getId()));
+                    locks.remove(expired.getId());
+                }
+            }
+        }
+    }
+
+    // a hard link costs nothing however large the upload, a copy is the fallback where links are not supported
+    private static boolean stageCopy(Path file, Path link) throws IOException {
+        Files.deleteIfExists(link);
+        try {
+            Files.createLink(link, file);
+            return true;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(file, link);
+            return false;
+        }
+    }
+
+    private Object lockOf(String id) {
+        return locks.computeIfAbsent(id, key -> new Object());
+    }
+
+    private Path pathOf(String id) {
+        return root.resolve(id);
+    }
+}
@@ -0,0 +1,17 @@
+package system.services;
+
+import lombok.Getter;
+
+/**
+ * Thrown when an upload grows past the configured maximum size. Nothing beyond the limit is kept.
+ */
+@Getter
+public class UploadTooLargeException extends RuntimeException {
+
+    private final long maxSize;
+
+    public UploadTooLargeException(long maxSize) {
+        super("Uploads are limited to " + maxSize + " bytes");
+        this.maxSize = maxSize;
+    }
+}
@@ -17,13 +17,16 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final BCryptPasswordEncoder passwordEncoder;
+    private final TakenNameFilter takenNameFilter;
+    private final NameAutocompleteIndex nameAutocompleteIndex;
 
     public User findByUsername(String username) {
         return userRepository.findByUsernameIgnoreCase(username).orElse(null);
     }
 
     public boolean userExists(String username) {
-        return userRepository.findByUsernameIgnoreCase(username).isPresent();
+        // only a username the filter might have seen needs the query
+        return takenNameFilter.mightHaveUser(username) && userRepository.findByUsernameIgnoreCase(username).isPresent();
     }
 
     public User getCurrentlyLoggedInUser(){
@@ -45,6 +48,9 @@ public class UserService {
             user.setCreatedAt(LocalDateTime.now());
             user.setPassword(passwordEncoder.encode(user.getPassword()));
         }
-        return userRepository.save(user);
+        takenNameFilter.addUser(user.getUsername());
+        User savedUser = userRepository.save(user);
+        nameAutocompleteIndex.putUser(user.getId(), user.getUsername());
+        return savedUser;
     }
 }
@@ -0,0 +1,37 @@
+-- The schema as hibernate's ddl-auto=update created it before migrations were introduced. Databases created that way
+-- already have all of it: they are baselined at this version on their first start, are not run through this script,
+-- and get every later script. It must therefore stay exactly that schema, and all changes go in later versions.
+
+CREATE SEQUENCE IF NOT EXISTS user_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS scroll_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS "user" (
+    id            INTEGER      NOT NULL,
+    admin         BOOLEAN      NOT NULL,
+    created_at    TIMESTAMP(6),
+    email         VARCHAR(255),
+    first_name    VARCHAR(255),
+    last_name     VARCHAR(255),
+    password      VARCHAR(255),
+    phone         VARCHAR(10),
+    profile_emoji VARCHAR(10)  NOT NULL,
+    username      VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_user PRIMARY KEY (id),
+    CONSTRAINT uk_user_username UNIQUE (username)
+);
+
+CREATE TABLE IF NOT EXISTS scroll (
+    id           INTEGER      NOT NULL,
+    content      BLOB,
+    content_type VARCHAR(255),
+    created_at   TIMESTAMP(6),
+    downloads    INTEGER      NOT NULL,
+    file_name    VARCHAR(255),
+    name         VARCHAR(255) NOT NULL,
+    password     VARCHAR(255),
+    updated_at   TIMESTAMP(6),
+    user_id      INTEGER      NOT NULL,
+    CONSTRAINT pk_scroll PRIMARY KEY (id),
+    CONSTRAINT uk_scroll_name UNIQUE (name),
+    CONSTRAINT fk_scroll_user FOREIGN KEY (user_id) REFERENCES "user" (id)
+);
@@ -0,0 +1,58 @@
+-- Scroll bytes move out of the scroll row into a content store shared by every scroll with the same SHA-256: blobs
+-- with reference counts, their bytes in chunks when they are kept in the database, and a checksum per chunk. Scrolls
+-- point at their blob by hash. Resumable uploads keep their sessions here until they are finished.
+
+ALTER TABLE scroll ADD COLUMN IF NOT EXISTS content_length BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE scroll ADD COLUMN IF NOT EXISTS content_hash VARCHAR(255);
+
+CREATE SEQUENCE IF NOT EXISTS content_blob_data_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS content_chunk_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS content_blob (
+    hash          VARCHAR(255) NOT NULL,
+    length        BIGINT       NOT NULL,
+    encoding      VARCHAR(255),
+    stored_length BIGINT       NOT NULL,
+    ref_count     INTEGER      NOT NULL,
+    created_at    TIMESTAMP(6),
+    verified_at   TIMESTAMP(6),
+    corrupt       BOOLEAN      NOT NULL,
+    CONSTRAINT pk_content_blob PRIMARY KEY (hash)
+);
+
+CREATE INDEX IF NOT EXISTS idx_content_blob_verified_at ON content_blob (verified_at);
+
+CREATE TABLE IF NOT EXISTS content_blob_data (
+    id          INTEGER      NOT NULL,
+    hash        VARCHAR(255) NOT NULL,
+    chunk_index INTEGER      NOT NULL,
+    length      INTEGER      NOT NULL,
+    data        BLOB,
+    CONSTRAINT pk_content_blob_data PRIMARY KEY (id),
+    CONSTRAINT uk_content_blob_data_chunk UNIQUE (hash, chunk_index)
+);
+
+CREATE TABLE IF NOT EXISTS content_chunk (
+    id           INTEGER      NOT NULL,
+    blob_hash    VARCHAR(255) NOT NULL,
+    chunk_index  INTEGER      NOT NULL,
+    chunk_offset BIGINT       NOT NULL,
+    length       INTEGER      NOT NULL,
+    checksum     VARCHAR(255),
+    CONSTRAINT pk_content_chunk PRIMARY KEY (id),
+    CONSTRAINT uk_content_chunk_chunk UNIQUE (blob_hash, chunk_index)
+);
+
+CREATE TABLE IF NOT EXISTS upload_session (
+    id             VARCHAR(255) NOT NULL,
+    name           VARCHAR(255),
+    file_name      VARCHAR(255),
+    content_type   VARCHAR(255),
+    password       VARCHAR(255),
+    received_bytes BIGINT       NOT NULL,
+    created_at     TIMESTAMP(6),
+    updated_at     TIMESTAMP(6),
+    user_id        INTEGER      NOT NULL,
+    CONSTRAINT pk_upload_session PRIMARY KEY (id),
+    CONSTRAINT fk_upload_session_user FOREIGN KEY (user_id) REFERENCES "user" (id)
+);
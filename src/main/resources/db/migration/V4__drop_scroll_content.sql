@@ -0,0 +1,6 @@
+-- V3 moved every scroll's bytes into the content store, so nothing reads the old column any more. The check fails
+-- this script, and keeps the column, if a scroll still has bytes there that V3 did not move.
+
+ALTER TABLE scroll ADD CONSTRAINT ck_scroll_content_moved CHECK (content IS NULL OR content_hash IS NOT NULL);
+ALTER TABLE scroll DROP CONSTRAINT ck_scroll_content_moved;
+ALTER TABLE scroll DROP COLUMN IF EXISTS content;
@@ -0,0 +1,15 @@
+-- Indexes for the columns scrolls are listed, looked up and filtered by. Listings are paged by seeking on
+-- (sort key, id), searches also narrow by creation date and uploader.
+
+CREATE INDEX IF NOT EXISTS idx_scroll_updated_at_id ON scroll (updated_at, id);
+CREATE INDEX IF NOT EXISTS idx_scroll_downloads_id ON scroll (downloads, id);
+CREATE INDEX IF NOT EXISTS idx_scroll_created_at ON scroll (created_at);
+CREATE INDEX IF NOT EXISTS idx_scroll_user_id ON scroll (user_id);
+
+-- Case-insensitive lookups compare lower-cased names. An index on a plain column cannot serve lower(name), so the
+-- lower-cased value is kept in a generated column and indexed there.
+ALTER TABLE scroll ADD COLUMN IF NOT EXISTS name_key VARCHAR(255) GENERATED ALWAYS AS (LOWER(name));
+CREATE INDEX IF NOT EXISTS idx_scroll_name_key ON scroll (name_key);
+
+ALTER TABLE "user" ADD COLUMN IF NOT EXISTS username_key VARCHAR(255) GENERATED ALWAYS AS (LOWER(username));
+CREATE INDEX IF NOT EXISTS idx_user_username_key ON "user" (username_key);
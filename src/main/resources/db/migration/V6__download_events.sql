@@ -0,0 +1,39 @@
+-- Every download, appended in batches and never changed. Statistics read the rollups below instead, which a background
+-- job folds the events into; the watermark is the last event id it has folded in.
+
+CREATE TABLE download_event (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    scroll_id     INTEGER      NOT NULL,
+    username      VARCHAR(255),
+    downloaded_at TIMESTAMP(6) NOT NULL,
+    bytes         BIGINT       NOT NULL,
+    CONSTRAINT pk_download_event PRIMARY KEY (id)
+);
+
+CREATE TABLE download_rollup_hour (
+    scroll_id    INTEGER      NOT NULL,
+    bucket_start TIMESTAMP(6) NOT NULL,
+    downloads    BIGINT       NOT NULL,
+    bytes        BIGINT       NOT NULL,
+    CONSTRAINT pk_download_rollup_hour PRIMARY KEY (scroll_id, bucket_start)
+);
+
+CREATE INDEX idx_download_rollup_hour_bucket ON download_rollup_hour (bucket_start);
+
+CREATE TABLE download_rollup_day (
+    scroll_id    INTEGER      NOT NULL,
+    bucket_start TIMESTAMP(6) NOT NULL,
+    downloads    BIGINT       NOT NULL,
+    bytes        BIGINT       NOT NULL,
+    CONSTRAINT pk_download_rollup_day PRIMARY KEY (scroll_id, bucket_start)
+);
+
+CREATE INDEX idx_download_rollup_day_bucket ON download_rollup_day (bucket_start);
+
+CREATE TABLE download_rollup_watermark (
+    id            INTEGER NOT NULL,
+    last_event_id BIGINT  NOT NULL,
+    CONSTRAINT pk_download_rollup_watermark PRIMARY KEY (id)
+);
+
+INSERT INTO download_rollup_watermark (id, last_event_id) VALUES (1, 0);
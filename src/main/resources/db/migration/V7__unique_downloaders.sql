@@ -0,0 +1,9 @@
+-- One HyperLogLog sketch of the users who downloaded a scroll on a day: 1024 one-byte registers. Sketches for any
+-- range of days merge into the distinct count over that range.
+
+CREATE TABLE download_uniques (
+    scroll_id INTEGER         NOT NULL,
+    day       DATE            NOT NULL,
+    registers VARBINARY(1024) NOT NULL,
+    CONSTRAINT pk_download_uniques PRIMARY KEY (scroll_id, day)
+);
@@ -0,0 +1,8 @@
+-- The downloaders of each scroll over every day older than the daily sketches kept, merged into one sketch, so a
+-- count since the first download reads a bounded number of rows however long the scroll has been around.
+
+CREATE TABLE download_uniques_rollup (
+    scroll_id INTEGER         NOT NULL,
+    registers VARBINARY(1024) NOT NULL,
+    CONSTRAINT pk_download_uniques_rollup PRIMARY KEY (scroll_id)
+);
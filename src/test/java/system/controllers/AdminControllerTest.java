@@ -6,20 +6,34 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import system.models.DownloadAdjustment;
+import system.models.DownloadWindow;
 import system.models.Scroll;
+import system.models.ScrollPage;
+import system.models.ScrollRanking;
+import system.models.ScrollSort;
+import system.models.ScrollSummary;
 import system.models.User;
 import system.repositories.ScrollRepository;
 import system.repositories.UserRepository;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import system.services.ContentScrubber;
+import system.services.DownloadStatistics;
 import system.services.ScrollService;
+import system.services.UniqueDownloaders;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -45,6 +59,15 @@ class AdminControllerTest {
     @MockBean
     private ScrollRepository scrollRepository;
 
+    @MockBean
+    private ContentScrubber contentScrubber;
+
+    @MockBean
+    private DownloadStatistics downloadStatistics;
+
+    @MockBean
+    private UniqueDownloaders uniqueDownloaders;
+
     @BeforeEach
     void setUp() {
     }
@@ -167,16 +190,15 @@ class AdminControllerTest {
         User user1 = new User();
         user1.setId(1);
         user1.setUsername("user1");
-        List<Scroll> scrolls = Arrays.asList(new Scroll(), new Scroll());
-        user1.setScrolls(scrolls);
 
         User user2 = new User();
         user2.setId(2);
         user2.setUsername("user2");
-        user2.setScrolls(null);
 
         List<User> users = Arrays.asList(user1, user2);
         when(userRepository.findAll()).thenReturn(users);
+        // users without scrolls get no row from the count query
+        when(scrollService.countByUploader(List.of(1, 2))).thenReturn(Map.of(1, 2L));
 
         mockMvc.perform(get("/admin/users"))
                 .andExpect(status().isOk())
@@ -184,6 +206,8 @@ class AdminControllerTest {
                 .andExpect(model().attributeExists("users", "userScrollCounts"))
                 .andExpect(model().attribute("userScrollCounts", hasEntry(user1, 2)))
                 .andExpect(model().attribute("userScrollCounts", hasEntry(user2, 0)));
+
+        verify(userRepository, never()).findByUsernameIgnoreCase(any());
     }
 
     @Test
@@ -312,7 +336,7 @@ class AdminControllerTest {
     @Test
     @WithMockUser(roles = "ADMIN")
     void testViewAllScrollsWithNoScrolls() throws Exception {
-        when(scrollService.findAll()).thenReturn(Collections.emptyList());
+        when(scrollService.findPage(ScrollSort.ID, null)).thenReturn(ScrollPage.empty());
 
         mockMvc.perform(get("/admin/statistics"))
                 .andExpect(status().isOk())
@@ -321,6 +345,22 @@ class AdminControllerTest {
                 .andExpect(model().attribute("scrolls", Collections.emptyList()));
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void testViewAllScrollsShowsLeaderboard() throws Exception {
+        when(scrollService.findPage(ScrollSort.ID, null)).thenReturn(ScrollPage.empty());
+        when(scrollService.findMostDownloaded(DownloadWindow.DAY, 10))
+                .thenReturn(List.of(new ScrollRanking(1, "Fire Scroll", 12)));
+
+        mockMvc.perform(get("/admin/statistics"))
+                .andExpect(status().isOk())
+                .andExpect(model().attributeExists("leaderboard"))
+                .andExpect(content().string(containsString("Fire Scroll (12)")));
+
+        verify(scrollService).findMostDownloaded(DownloadWindow.HOUR, 10);
+        verify(scrollService).findMostDownloaded(DownloadWindow.ALL_TIME, 10);
+    }
+
     @Test
     @WithMockUser(roles = "USER")
     void testUnauthorizedAccessToAdminPages() throws Exception {
@@ -387,94 +427,148 @@ class AdminControllerTest {
         verify(userRepository).deleteById(1);
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void testViewAllScrollsShowsUniqueDownloaders() throws Exception {
+        when(scrollService.findPage(ScrollSort.ID, null)).thenReturn(page(summary(1), summary(2)));
+        when(uniqueDownloaders.countEver(List.of(1, 2))).thenReturn(Map.of(1, 7L));
+
+        mockMvc.perform(get("/admin/statistics"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("downloaders", Map.of(1, 7L)))
+                .andExpect(model().attributeExists("recentDownloaders"));
+
+        verify(uniqueDownloaders).count(List.of(1, 2), 14);
+    }
+
     @Test
     @WithMockUser(roles = "ADMIN")
     void testViewAllScrollsNoSort() throws Exception {
-        when(scrollRepository.findAll()).thenReturn(Arrays.asList(new Scroll(), new Scroll()));
+        when(scrollService.findPage(ScrollSort.ID, null)).thenReturn(page(summary(1), summary(2)));
 
         mockMvc.perform(get("/admin/statistics"))
                 .andExpect(status().isOk())
                 .andExpect(view().name("admin/view_scrolls"))
                 .andExpect(model().attributeExists("scrolls"));
 
-        verify(scrollRepository).findAll();
+        verify(scrollService).findPage(ScrollSort.ID, null);
     }
 
     @Test
     @WithMockUser(roles = "ADMIN")
     void testViewAllScrollsSortAsc() throws Exception {
-        when(scrollRepository.findAllByOrderByDownloadsAsc()).thenReturn(Arrays.asList(new Scroll(), new Scroll()));
+        when(scrollService.findPage(ScrollSort.DOWNLOADS_ASC, null)).thenReturn(page(summary(1), summary(2)));
 
         mockMvc.perform(get("/admin/statistics").param("sort", "asc"))
                 .andExpect(status().isOk())
                 .andExpect(view().name("admin/view_scrolls"))
                 .andExpect(model().attributeExists("scrolls"));
 
-        verify(scrollRepository).findAllByOrderByDownloadsAsc();
+        verify(scrollService).findPage(ScrollSort.DOWNLOADS_ASC, null);
     }
 
     @Test
     @WithMockUser(roles = "ADMIN")
     void testViewAllScrollsSortDesc() throws Exception {
-        when(scrollRepository.findAllByOrderByDownloadsDesc()).thenReturn(Arrays.asList(new Scroll(), new Scroll()));
+        when(scrollService.findPage(ScrollSort.DOWNLOADS_DESC, null)).thenReturn(page(summary(1), summary(2)));
 
         mockMvc.perform(get("/admin/statistics").param("sort", "desc"))
                 .andExpect(status().isOk())
                 .andExpect(view().name("admin/view_scrolls"))
                 .andExpect(model().attributeExists("scrolls"));
 
-        verify(scrollRepository).findAllByOrderByDownloadsDesc();
+        verify(scrollService).findPage(ScrollSort.DOWNLOADS_DESC, null);
     }
 
     @Test
     @WithMockUser(roles = "ADMIN")
-    void testIncreaseDownloads() throws Exception {
-        Scroll scroll = new Scroll();
-        scroll.setId(1);
-        scroll.setDownloads(5);
+    void testViewAllScrollsNextPageKeepsSort() throws Exception {
+        when(scrollService.findPage(ScrollSort.DOWNLOADS_DESC, null))
+                .thenReturn(new ScrollPage(List.of(summary(1)), "next-cursor"));
+
+        mockMvc.perform(get("/admin/statistics").param("sort", "desc"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("nextPageUrl", containsString("sort=desc&cursor=next-cursor")));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void testViewAllScrollsShowsCorruptScrolls() throws Exception {
+        Scroll corrupt = new Scroll();
+        corrupt.setId(3);
+        corrupt.setName("Damaged Scroll");
+        when(scrollService.findPage(ScrollSort.ID, null)).thenReturn(ScrollPage.empty());
+        when(contentScrubber.findCorruptScrolls()).thenReturn(List.of(corrupt));
 
-        when(scrollRepository.findById(1)).thenReturn(Optional.of(scroll));
+        mockMvc.perform(get("/admin/statistics"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("corruptScrolls", List.of(corrupt)))
+                .andExpect(content().string(containsString("3 - Damaged Scroll")));
+    }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void testIncreaseDownloads() throws Exception {
         mockMvc.perform(post("/admin/scrolls/increase/1")
                         .with(csrf()))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/admin/statistics?sort=asc"));
 
-        verify(scrollRepository).save(argThat(s -> s.getDownloads() == 6));
+        verify(scrollService).adjustDownloads(List.of(new DownloadAdjustment(1, 1)));
+        verify(scrollRepository, never()).save(any());
     }
 
     @Test
     @WithMockUser(roles = "ADMIN")
     void testDecreaseDownloads() throws Exception {
-        Scroll scroll = new Scroll();
-        scroll.setId(1);
-        scroll.setDownloads(5);
-
-        when(scrollRepository.findById(1)).thenReturn(Optional.of(scroll));
-
         mockMvc.perform(post("/admin/scrolls/decrease/1")
                         .with(csrf()))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/admin/statistics?sort=asc"));
 
-        verify(scrollRepository).save(argThat(s -> s.getDownloads() == 4));
+        // the update itself keeps the count from going below zero
+        verify(scrollService).adjustDownloads(List.of(new DownloadAdjustment(1, -1)));
+        verify(scrollRepository, never()).save(any());
     }
 
     @Test
     @WithMockUser(roles = "ADMIN")
-    void testDecreaseDownloadsAtZero() throws Exception {
-        Scroll scroll = new Scroll();
-        scroll.setId(1);
-        scroll.setDownloads(0);
+    void testAdjustDownloadsInBulk() throws Exception {
+        List<DownloadAdjustment> adjustments = List.of(new DownloadAdjustment(1, 5), new DownloadAdjustment(2, -3));
+        when(scrollService.adjustDownloads(adjustments)).thenReturn(2);
 
-        when(scrollRepository.findById(1)).thenReturn(Optional.of(scroll));
+        mockMvc.perform(post("/admin/scrolls/downloads")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"scrollId\": 1, \"delta\": 5}, {\"scrollId\": 2, \"delta\": -3}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.adjusted").value(2));
+    }
 
-        mockMvc.perform(post("/admin/scrolls/decrease/1")
-                        .with(csrf()))
-                .andExpect(status().is3xxRedirection())
-                .andExpect(redirectedUrl("/admin/statistics?sort=asc"));
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void testAdjustDownloadsInBulkTooMany() throws Exception {
+        String adjustments = IntStream.rangeClosed(1, 10_001)
+                .mapToObj(id -> "{\"scrollId\": " + id + ", \"delta\": 1}")
+                .collect(Collectors.joining(", ", "[", "]"));
+
+        mockMvc.perform(post("/admin/scrolls/downloads")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(adjustments))
+                .andExpect(status().isBadRequest());
 
-        verify(scrollRepository).save(argThat(s -> s.getDownloads() == 0));
+        verify(scrollService, never()).adjustDownloads(any());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void testAdjustDownloadsInBulkForbiddenForUsers() throws Exception {
+        mockMvc.perform(post("/admin/scrolls/downloads")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isForbidden());
     }
 
     @Test
@@ -486,4 +580,12 @@ class AdminControllerTest {
                 .andExpect(view().name("admin/view_users"))
                 .andExpect(model().attributeExists("users", "newUser", "userScrollCounts"));
     }
-}
\ No newline at end of file
+
+    private static ScrollPage page(ScrollSummary... summaries) {
+        return new ScrollPage(List.of(summaries), null);
+    }
+
+    private static ScrollSummary summary(int id) {
+        return new ScrollSummary(id, "Scroll " + id, "testuser", null, null, 0, false);
+    }
+}
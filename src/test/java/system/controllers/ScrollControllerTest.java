@@ -6,20 +6,40 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import system.models.DownloadWindow;
 import system.models.Scroll;
+import system.models.ScrollPage;
+import system.models.ScrollRanking;
+import system.models.ScrollSearch;
+import system.models.ScrollSort;
+import system.models.ScrollSummary;
+import system.models.UploadSession;
 import system.models.User;
+import system.services.NameAutocompleteIndex;
 import system.services.ScrollService;
+import system.services.StoredContent;
+import system.services.UploadOffsetMismatchException;
+import system.services.UploadSessionLimitException;
+import system.services.UploadSessionNotFoundException;
+import system.services.UploadSessionService;
+import system.services.UploadTooLargeException;
 import system.services.UserService;
 
+import java.io.ByteArrayOutputStream;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -38,6 +58,12 @@ class ScrollControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private UploadSessionService uploadSessionService;
+
+    @MockBean
+    private NameAutocompleteIndex nameAutocompleteIndex;
+
     private User testUser;
     private Scroll testScroll;
 
@@ -52,7 +78,8 @@ class ScrollControllerTest {
         testScroll.setName("Test Scroll");
         testScroll.setUser(testUser);
 
-        when(scrollService.findAll()).thenReturn(Arrays.asList(testScroll));
+        when(scrollService.findPage(ScrollSort.RECENT, null))
+                .thenReturn(new ScrollPage(List.of(ScrollSummary.of(testScroll)), null));
     }
 
     @Test
@@ -64,6 +91,28 @@ class ScrollControllerTest {
                 .andExpect(model().attributeExists("scrolls"));
     }
 
+    @Test
+    @WithMockUser
+    void testGetIndexLinksNextPage() throws Exception {
+        when(scrollService.findPage(ScrollSort.RECENT, null))
+                .thenReturn(new ScrollPage(List.of(ScrollSummary.of(testScroll)), "next-cursor"));
+
+        mockMvc.perform(get("/"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("nextPageUrl", containsString("cursor=next-cursor")));
+    }
+
+    @Test
+    @WithMockUser
+    void testGetIndexWithCursor() throws Exception {
+        when(scrollService.findPage(ScrollSort.RECENT, "next-cursor")).thenReturn(ScrollPage.empty());
+
+        mockMvc.perform(get("/").param("cursor", "next-cursor"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("scrolls", List.of()))
+                .andExpect(model().attributeDoesNotExist("nextPageUrl"));
+    }
+
     @Test
     @WithMockUser
     void testGetCreateScroll() throws Exception {
@@ -185,13 +234,12 @@ class ScrollControllerTest {
     void testGetDownloadScroll() throws Exception {
         Scroll scroll = new Scroll();
         scroll.setId(1);
-        scroll.setContent("test content".getBytes());
         scroll.setContentType(MediaType.TEXT_PLAIN_VALUE);
         scroll.setFileName("test.txt");
         scroll.setUser(testUser);
 
         when(scrollService.findById(1)).thenReturn(Optional.of(scroll));
-        when(scrollService.save(any(Scroll.class))).thenReturn(scroll);
+        when(scrollService.findContent(scroll)).thenReturn(Optional.of(storedContent("test content")));
 
         mockMvc.perform(post("/scroll/1/download")
                         .with(csrf()))
@@ -201,6 +249,384 @@ class ScrollControllerTest {
                 .andExpect(content().bytes("test content".getBytes()));
     }
 
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetDownloadScrollSingleRange() throws Exception {
+        Scroll scroll = downloadableScroll();
+
+        mockMvc.perform(get("/scroll/1/download")
+                        .header("Range", "bytes=5-11"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 5-11/12"))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(content().bytes("content".getBytes()));
+
+        verify(scrollService, never()).recordDownload(eq(scroll), any());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetDownloadScrollRangeFromStartCountsDownload() throws Exception {
+        Scroll scroll = downloadableScroll();
+
+        mockMvc.perform(get("/scroll/1/download")
+                        .header("Range", "bytes=0-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 0-11/12"));
+
+        verify(scrollService).recordDownload(scroll, "testuser");
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testHeadDownloadScrollDoesNotCountDownload() throws Exception {
+        Scroll scroll = downloadableScroll();
+
+        mockMvc.perform(head("/scroll/1/download"))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue("Content-Length", 12))
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(content().bytes(new byte[0]));
+
+        verify(scrollService, never()).recordDownload(any(Scroll.class), any());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetDownloadScrollPasswordProtectedRequiresPost() throws Exception {
+        Scroll scroll = downloadableScroll();
+        scroll.setPassword("correctPassword");
+
+        mockMvc.perform(get("/scroll/1/download")
+                        .param("password", "correctPassword"))
+                .andExpect(status().isMethodNotAllowed())
+                .andExpect(header().string("Allow", "POST"));
+
+        verify(scrollService, never()).findContent(any(Scroll.class));
+        verify(scrollService, never()).recordDownload(any(Scroll.class), any());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetDownloadScrollMultipleRanges() throws Exception {
+        downloadableScroll();
+
+        mockMvc.perform(get("/scroll/1/download")
+                        .header("Range", "bytes=0-3,5-6"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Type", startsWith("multipart/byteranges; boundary=")))
+                .andExpect(content().string(containsString("Content-Range: bytes 0-3/12")))
+                .andExpect(content().string(containsString("Content-Range: bytes 5-6/12")));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetDownloadScrollIfRangeMatches() throws Exception {
+        downloadableScroll();
+
+        mockMvc.perform(get("/scroll/1/download")
+                        .header("Range", "bytes=0-3")
+                        .header("If-Range", "\"abc123\""))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes("test".getBytes()));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetDownloadScrollIfRangeStale() throws Exception {
+        downloadableScroll();
+
+        mockMvc.perform(get("/scroll/1/download")
+                        .header("Range", "bytes=0-3")
+                        .header("If-Range", "\"outdated\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(content().bytes("test content".getBytes()));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetDownloadScrollUnsatisfiableRange() throws Exception {
+        downloadableScroll();
+
+        mockMvc.perform(get("/scroll/1/download")
+                        .header("Range", "bytes=100-200"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */12"));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetDownloadCompressedScrollAcceptingGzip() throws Exception {
+        Scroll scroll = downloadableScroll();
+        byte[] compressed = gzip("test content");
+        when(scrollService.findContent(scroll))
+                .thenReturn(Optional.of(new StoredContent(new ByteArrayResource(compressed), StoredContent.GZIP, 12)));
+
+        mockMvc.perform(get("/scroll/1/download")
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("ETag", "\"abc123-gzip\""))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andExpect(content().bytes(compressed));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetDownloadCompressedScrollWithoutGzip() throws Exception {
+        Scroll scroll = downloadableScroll();
+        when(scrollService.findContent(scroll))
+                .thenReturn(Optional.of(new StoredContent(new ByteArrayResource(gzip("test content")), StoredContent.GZIP, 12)));
+
+        mockMvc.perform(get("/scroll/1/download")
+                        .header("Range", "bytes=5-11"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().string("Content-Range", "bytes 5-11/12"))
+                .andExpect(content().bytes("content".getBytes()));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetDownloadScrollIfNoneMatch() throws Exception {
+        Scroll scroll = downloadableScroll();
+
+        mockMvc.perform(get("/scroll/1/download")
+                        .header("If-None-Match", "\"abc123\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(content().bytes(new byte[0]));
+
+        verify(scrollService, never()).findContent(scroll);
+        verify(scrollService, never()).recordDownload(eq(scroll), any());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetDownloadScrollIfNoneMatchCompressedTag() throws Exception {
+        Scroll scroll = downloadableScroll();
+
+        mockMvc.perform(get("/scroll/1/download")
+                        .header("If-None-Match", "\"other\", W/\"abc123-gzip\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"abc123-gzip\""));
+
+        verify(scrollService, never()).findContent(scroll);
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetDownloadScrollIfNoneMatchChanged() throws Exception {
+        Scroll scroll = downloadableScroll();
+
+        mockMvc.perform(get("/scroll/1/download")
+                        .header("If-None-Match", "\"outdated\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(content().bytes("test content".getBytes()));
+
+        verify(scrollService).recordDownload(scroll, "testuser");
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetDownloadScrollIfModifiedSince() throws Exception {
+        Scroll scroll = downloadableScroll();
+        scroll.setUpdatedAt(LocalDateTime.now().minusDays(1));
+
+        mockMvc.perform(get("/scroll/1/download")
+                        .header("If-Modified-Since", System.currentTimeMillis()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().exists("Last-Modified"));
+
+        verify(scrollService, never()).findContent(scroll);
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetDownloadScrollModifiedSince() throws Exception {
+        Scroll scroll = downloadableScroll();
+        scroll.setUpdatedAt(LocalDateTime.now());
+
+        mockMvc.perform(get("/scroll/1/download")
+                        .header("If-Modified-Since", System.currentTimeMillis() - 86_400_000L))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "private, no-cache"))
+                .andExpect(content().bytes("test content".getBytes()));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testPostUploadSession() throws Exception {
+        when(userService.findByUsername("testuser")).thenReturn(testUser);
+        when(scrollService.nameExists("New Scroll")).thenReturn(false);
+        when(uploadSessionService.create(testUser, "New Scroll", "test.txt", MediaType.TEXT_PLAIN_VALUE, null))
+                .thenReturn(uploadSession(0));
+
+        mockMvc.perform(post("/scroll/uploads")
+                        .param("name", "New Scroll")
+                        .param("fileName", "test.txt")
+                        .param("contentType", MediaType.TEXT_PLAIN_VALUE))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", "/scroll/uploads/upload-1"))
+                .andExpect(header().string("Upload-Offset", "0"))
+                .andExpect(jsonPath("$.id").value("upload-1"));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testPostUploadSessionExistingName() throws Exception {
+        when(userService.findByUsername("testuser")).thenReturn(testUser);
+        when(scrollService.nameExists("Existing Scroll")).thenReturn(true);
+
+        mockMvc.perform(post("/scroll/uploads")
+                        .param("name", "Existing Scroll")
+                        .param("fileName", "test.txt"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Name already exists"));
+
+        verify(uploadSessionService, never()).create(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testPostUploadSessionBeyondLimit() throws Exception {
+        when(userService.findByUsername("testuser")).thenReturn(testUser);
+        when(scrollService.nameExists("New Scroll")).thenReturn(false);
+        when(uploadSessionService.create(any(), any(), any(), any(), any()))
+                .thenThrow(new UploadSessionLimitException(5));
+
+        mockMvc.perform(post("/scroll/uploads")
+                        .param("name", "New Scroll")
+                        .param("fileName", "test.txt"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(jsonPath("$.error").value("At most 5 uploads can be open at once"));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testPutUploadChunk() throws Exception {
+        UploadSession session = uploadSession(5);
+        when(userService.findByUsername("testuser")).thenReturn(testUser);
+        when(uploadSessionService.find("upload-1", testUser)).thenReturn(Optional.of(session));
+        when(uploadSessionService.append(eq(session), eq(5L), any())).thenReturn(12L);
+
+        mockMvc.perform(put("/scroll/uploads/upload-1")
+                        .param("offset", "5")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(" content"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Upload-Offset", "12"))
+                .andExpect(jsonPath("$.offset").value(12));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testPutUploadChunkWrongOffset() throws Exception {
+        UploadSession session = uploadSession(5);
+        when(userService.findByUsername("testuser")).thenReturn(testUser);
+        when(uploadSessionService.find("upload-1", testUser)).thenReturn(Optional.of(session));
+        when(uploadSessionService.append(eq(session), eq(0L), any()))
+                .thenThrow(new UploadOffsetMismatchException(5, 0));
+
+        mockMvc.perform(put("/scroll/uploads/upload-1")
+                        .param("offset", "0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content("test content"))
+                .andExpect(status().isConflict())
+                .andExpect(header().string("Upload-Offset", "5"));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testPutUploadChunkUnknownSession() throws Exception {
+        when(userService.findByUsername("testuser")).thenReturn(testUser);
+        when(uploadSessionService.find("missing", testUser)).thenReturn(Optional.empty());
+
+        mockMvc.perform(put("/scroll/uploads/missing")
+                        .param("offset", "0")
+                        .content("test content"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testPutUploadChunkSessionEnded() throws Exception {
+        UploadSession session = uploadSession(5);
+        when(userService.findByUsername("testuser")).thenReturn(testUser);
+        when(uploadSessionService.find("upload-1", testUser)).thenReturn(Optional.of(session));
+        when(uploadSessionService.append(eq(session), eq(5L), any()))
+                .thenThrow(new UploadSessionNotFoundException("upload-1"));
+
+        mockMvc.perform(put("/scroll/uploads/upload-1")
+                        .param("offset", "5")
+                        .content("content"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testPutUploadChunkTooLarge() throws Exception {
+        UploadSession session = uploadSession(5);
+        when(userService.findByUsername("testuser")).thenReturn(testUser);
+        when(uploadSessionService.find("upload-1", testUser)).thenReturn(Optional.of(session));
+        when(uploadSessionService.append(eq(session), eq(5L), any())).thenThrow(new UploadTooLargeException(10));
+
+        mockMvc.perform(put("/scroll/uploads/upload-1")
+                        .param("offset", "5")
+                        .content("content"))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.error").value("File is larger than 10 bytes"));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testPostFinishUpload() throws Exception {
+        UploadSession session = uploadSession(12);
+        Scroll scroll = new Scroll();
+        scroll.setId(7);
+        when(userService.findByUsername("testuser")).thenReturn(testUser);
+        when(uploadSessionService.find("upload-1", testUser)).thenReturn(Optional.of(session));
+        when(uploadSessionService.finish(session)).thenReturn(scroll);
+
+        mockMvc.perform(post("/scroll/uploads/upload-1/finish"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", "/scroll/7/download"))
+                .andExpect(jsonPath("$.scrollId").value(7));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testPostFinishUploadNameTaken() throws Exception {
+        UploadSession session = uploadSession(12);
+        when(userService.findByUsername("testuser")).thenReturn(testUser);
+        when(uploadSessionService.find("upload-1", testUser)).thenReturn(Optional.of(session));
+        when(scrollService.nameExists("New Scroll")).thenReturn(true);
+
+        mockMvc.perform(post("/scroll/uploads/upload-1/finish"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Name already exists"));
+
+        verify(uploadSessionService, never()).finish(any());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testPostFinishUploadNameTakenDuringSave() throws Exception {
+        UploadSession session = uploadSession(12);
+        when(userService.findByUsername("testuser")).thenReturn(testUser);
+        when(uploadSessionService.find("upload-1", testUser)).thenReturn(Optional.of(session));
+        // free when checked, taken by the time the scroll is saved
+        when(scrollService.nameExists("New Scroll")).thenReturn(false, true);
+        when(uploadSessionService.finish(session)).thenThrow(new DataIntegrityViolationException("duplicate name"));
+
+        mockMvc.perform(post("/scroll/uploads/upload-1/finish"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Name already exists"));
+    }
+
     @Test
     @WithMockUser(username = "testuser")
     void testGetEditScroll() throws Exception {
@@ -220,7 +646,6 @@ class ScrollControllerTest {
         existingScroll.setId(1);
         existingScroll.setName("Old Name");
         existingScroll.setUser(testUser);
-        existingScroll.setContent("old content".getBytes());
         existingScroll.setContentType(MediaType.TEXT_PLAIN_VALUE);
         existingScroll.setFileName("old.txt");
         existingScroll.setPassword("oldPassword");
@@ -275,8 +700,8 @@ class ScrollControllerTest {
         searchResult.setName("Search Result");
         searchResult.setUser(testUser);
 
-        when(scrollService.searchScrolls(any(), any(), any(), any(), any()))
-                .thenReturn(Arrays.asList(searchResult));
+        when(scrollService.searchScrolls(any(ScrollSearch.class), any()))
+                .thenReturn(new ScrollPage(List.of(ScrollSummary.of(searchResult)), null));
 
         mockMvc.perform(get("/scroll/search")
                         .param("uploaderId", "1")
@@ -287,14 +712,98 @@ class ScrollControllerTest {
                 .andExpect(view().name("index"))
                 .andExpect(model().attributeExists("scrolls"));
 
-        verify(scrollService).searchScrolls(eq(1), eq(null), eq("Search"), any(LocalDateTime.class), any(LocalDateTime.class));
+        verify(scrollService).searchScrolls(argThat(search -> search.getUploaderId() == 1 && search.getScrollId() == null
+                && "Search".equals(search.getName()) && search.getCreatedFrom() != null && search.getCreatedTo() != null), isNull());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testSearchScrollByContent() throws Exception {
+        when(scrollService.searchScrolls(any(ScrollSearch.class), any()))
+                .thenReturn(new ScrollPage(List.of(ScrollSummary.of(testScroll)), null));
+
+        mockMvc.perform(get("/scroll/search")
+                        .param("text", "dragon fire"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("index"));
+
+        verify(scrollService).searchScrolls(argThat(search -> "dragon fire".equals(search.getText())), isNull());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testSearchScrollWithCombinedFilters() throws Exception {
+        when(scrollService.searchScrolls(any(ScrollSearch.class), any()))
+                .thenReturn(new ScrollPage(List.of(ScrollSummary.of(testScroll)), null));
+
+        mockMvc.perform(get("/scroll/search")
+                        .param("uploaderId", "1")
+                        .param("minDownloads", "10")
+                        .param("passwordProtected", "false")
+                        .param("sort", "DOWNLOADS_DESC"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("index"));
+
+        verify(scrollService).searchScrolls(argThat(search -> search.getUploaderId() == 1
+                && search.getMinDownloads() == 10 && search.getMaxDownloads() == null
+                && Boolean.FALSE.equals(search.getPasswordProtected())
+                && search.getSort() == ScrollSort.DOWNLOADS_DESC), isNull());
+    }
+
+    @Test
+    void testAutocomplete() throws Exception {
+        when(nameAutocompleteIndex.completeScrollName("fi", 10)).thenReturn(List.of("Fire Scroll", "Fish Tales"));
+        when(nameAutocompleteIndex.completeUsername("fi", 10)).thenReturn(List.of("finn"));
+
+        mockMvc.perform(get("/autocomplete").param("q", "fi"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.scrolls[0]").value("Fire Scroll"))
+                .andExpect(jsonPath("$.scrolls[1]").value("Fish Tales"))
+                .andExpect(jsonPath("$.uploaders[0]").value("finn"));
+    }
+
+    @Test
+    void testAutocompleteCapsLimit() throws Exception {
+        mockMvc.perform(get("/autocomplete").param("q", "fi").param("limit", "1000"))
+                .andExpect(status().isOk());
+
+        verify(nameAutocompleteIndex).completeScrollName("fi", 25);
+    }
+
+    @Test
+    void testAutocompleteWithBlankPrefix() throws Exception {
+        mockMvc.perform(get("/autocomplete").param("q", " "))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.scrolls").isEmpty());
+
+        verify(nameAutocompleteIndex, never()).completeScrollName(any(), anyInt());
+    }
+
+    @Test
+    void testLeaderboard() throws Exception {
+        when(scrollService.findMostDownloaded(DownloadWindow.HOUR, 10))
+                .thenReturn(List.of(new ScrollRanking(2, "Water Scroll", 40), new ScrollRanking(1, "Fire Scroll", 25)));
+
+        mockMvc.perform(get("/leaderboard").param("window", "HOUR"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Water Scroll"))
+                .andExpect(jsonPath("$[0].downloads").value(40))
+                .andExpect(jsonPath("$[1].id").value(1));
+    }
+
+    @Test
+    void testLeaderboardDefaultsToDayAndCapsLimit() throws Exception {
+        mockMvc.perform(get("/leaderboard").param("limit", "1000"))
+                .andExpect(status().isOk());
+
+        verify(scrollService).findMostDownloaded(DownloadWindow.DAY, 50);
     }
 
     @Test
     @WithMockUser(username = "testuser")
     void testSearchScrollNoResults() throws Exception {
-        when(scrollService.searchScrolls(any(), any(), any(), any(), any()))
-                .thenReturn(Arrays.asList());
+        when(scrollService.searchScrolls(any(ScrollSearch.class), any()))
+                .thenReturn(ScrollPage.empty());
 
         mockMvc.perform(get("/scroll/search")
                         .param("name", "NonExistent"))
@@ -367,29 +876,44 @@ class ScrollControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetDownloadScrollMissingContent() throws Exception {
+        Scroll scroll = new Scroll();
+        scroll.setId(1);
+        scroll.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        scroll.setFileName("test.txt");
+        scroll.setUser(testUser);
+
+        when(scrollService.findById(1)).thenReturn(Optional.of(scroll));
+        when(scrollService.findContent(scroll)).thenReturn(Optional.empty());
+
+        mockMvc.perform(post("/scroll/1/download")
+                        .with(csrf()))
+                .andExpect(status().isNotFound());
+
+        verify(scrollService, never()).recordDownload(any(Scroll.class), any());
+    }
+
     @Test
     @WithMockUser(username = "testuser")
     void testGetDownloadScrollIncrementsDownloadCount() throws Exception {
         Scroll scroll = new Scroll();
         scroll.setId(1);
-        scroll.setContent("test content".getBytes());
         scroll.setContentType(MediaType.TEXT_PLAIN_VALUE);
         scroll.setFileName("test.txt");
         scroll.setUser(testUser);
         scroll.setDownloads(5);
 
         when(scrollService.findById(1)).thenReturn(Optional.of(scroll));
-        when(scrollService.save(any(Scroll.class))).thenAnswer(invocation -> {
-            Scroll savedScroll = invocation.getArgument(0);
-            assertEquals(6, savedScroll.getDownloads());
-            return savedScroll;
-        });
+        when(scrollService.findContent(scroll)).thenReturn(Optional.of(storedContent("test content")));
 
         mockMvc.perform(post("/scroll/1/download")
                         .with(csrf()))
                 .andExpect(status().isOk());
 
-        verify(scrollService).save(argThat(s -> s.getDownloads() == 6));
+        verify(scrollService).recordDownload(scroll, "testuser");
+        verify(scrollService, never()).save(any(Scroll.class));
     }
 
     @Test
@@ -397,13 +921,13 @@ class ScrollControllerTest {
     void testDownloadScrollWithCorrectPassword() throws Exception {
         Scroll scroll = new Scroll();
         scroll.setId(1);
-        scroll.setContent("test content".getBytes());
         scroll.setContentType(MediaType.TEXT_PLAIN_VALUE);
         scroll.setFileName("test.txt");
         scroll.setUser(testUser);
         scroll.setPassword("correctPassword");
 
         when(scrollService.findById(1)).thenReturn(Optional.of(scroll));
+        when(scrollService.findContent(scroll)).thenReturn(Optional.of(storedContent("test content")));
 
         mockMvc.perform(post("/scroll/1/download")
                         .param("password", "correctPassword")
@@ -411,7 +935,7 @@ class ScrollControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.TEXT_PLAIN_VALUE));
 
-        verify(scrollService).save(any(Scroll.class));
+        verify(scrollService).recordDownload(scroll, "testuser");
     }
 
     @Test
@@ -423,7 +947,8 @@ class ScrollControllerTest {
         scroll.setUser(testUser);
 
         when(scrollService.findById(1)).thenReturn(Optional.of(scroll));
-        when(scrollService.findAll()).thenReturn(Arrays.asList(scroll));
+        when(scrollService.findPage(ScrollSort.RECENT, null))
+                .thenReturn(new ScrollPage(List.of(ScrollSummary.of(scroll)), null));
 
         mockMvc.perform(post("/scroll/1/download")
                         .param("password", "wrongPassword")
@@ -432,7 +957,7 @@ class ScrollControllerTest {
                 .andExpect(view().name("index"))
                 .andExpect(model().attribute("error", "Wrong password"));
 
-        verify(scrollService, never()).save(any(Scroll.class));
+        verify(scrollService, never()).recordDownload(any(Scroll.class), any());
     }
 
     @Test
@@ -480,4 +1005,40 @@ class ScrollControllerTest {
 
         verify(scrollService, never()).save(any());
     }
-}
\ No newline at end of file
+
+    private UploadSession uploadSession(long receivedBytes) {
+        return UploadSession.builder()
+                .id("upload-1")
+                .name("New Scroll")
+                .fileName("test.txt")
+                .contentType(MediaType.TEXT_PLAIN_VALUE)
+                .receivedBytes(receivedBytes)
+                .user(testUser)
+                .build();
+    }
+
+    private Scroll downloadableScroll() {
+        Scroll scroll = new Scroll();
+        scroll.setId(1);
+        scroll.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        scroll.setFileName("test.txt");
+        scroll.setContentHash("abc123");
+        scroll.setUser(testUser);
+
+        when(scrollService.findById(1)).thenReturn(Optional.of(scroll));
+        when(scrollService.findContent(scroll)).thenReturn(Optional.of(storedContent("test content")));
+        return scroll;
+    }
+
+    private static StoredContent storedContent(String content) {
+        return new StoredContent(new ByteArrayResource(content.getBytes()), null, content.length());
+    }
+
+    private static byte[] gzip(String content) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content.getBytes());
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,137 @@
+package system.migrations;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.util.unit.DataSize;
+import system.services.ContentChunker;
+import system.services.FileSystemContentStore;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SchemaMigrationTest {
+
+    @TempDir
+    Path root;
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Test
+    void testDatabaseFromBeforeMigrationsGetsEveryLaterScript() throws Exception {
+        createOldSchema();
+        jdbcTemplate.update("insert into scroll (id, downloads, name, user_id) values (1, 3, 'Fire Scroll', 1)");
+
+        flyway(null).migrate();
+
+        assertTablesExist();
+        assertEquals(0, jdbcTemplate.queryForObject("select content_length from scroll where id = 1", Long.class));
+        assertEquals("fire scroll", jdbcTemplate.queryForObject("select name_key from scroll where id = 1", String.class));
+    }
+
+    @Test
+    void testEmptyDatabaseGetsTheSameSchema() {
+        flyway(null).migrate();
+
+        assertTablesExist();
+    }
+
+    @Test
+    void testOldContentMovesIntoDatabaseBlobs() throws Exception {
+        createOldSchema();
+        insertScroll(1, "Fire Scroll", "the same words");
+        insertScroll(2, "Water Scroll", "the same words");
+        insertScroll(3, "Earth Scroll", "other words");
+
+        flyway(null).migrate();
+
+        String hash = jdbcTemplate.queryForObject("select content_hash from scroll where id = 1", String.class);
+        assertEquals(hash, jdbcTemplate.queryForObject("select content_hash from scroll where id = 2", String.class));
+        assertEquals(14, jdbcTemplate.queryForObject("select content_length from scroll where id = 1", Long.class));
+        assertEquals(2, jdbcTemplate.queryForObject("select ref_count from content_blob where hash = ?", Integer.class, hash));
+        assertEquals(2, jdbcTemplate.queryForObject("select count(*) from content_blob", Integer.class));
+        // 14 bytes in 4 byte chunks
+        assertEquals(4, jdbcTemplate.queryForObject("select count(*) from content_chunk where blob_hash = ?", Integer.class, hash));
+        assertEquals("the same words", storedText(hash));
+        assertFalse(columns("scroll").contains("content"));
+    }
+
+    @Test
+    void testOldContentMovesIntoFiles() throws Exception {
+        createOldSchema();
+        insertScroll(1, "Fire Scroll", "the same words");
+
+        flyway(new FileSystemContentStore(root.toString())).migrate();
+
+        String hash = jdbcTemplate.queryForObject("select content_hash from scroll where id = 1", String.class);
+        assertEquals("the same words", new String(new FileSystemContentStore(root.toString()).read(hash).orElseThrow()
+                .getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from content_blob_data", Integer.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Flyway flyway(FileSystemContentStore fileSystemContentStore) {
+        ObjectProvider<FileSystemContentStore> store = mock(ObjectProvider.class);
+        when(store.getIfAvailable()).thenReturn(fileSystemContentStore);
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .javaMigrations(new V3__MoveScrollContentToBlobs(new ContentChunker(DataSize.ofBytes(4)), store))
+                .load();
+    }
+
+    // what ddl-auto=update left behind, with a user to own scrolls
+    private void createOldSchema() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/V1__baseline.sql"));
+        }
+        jdbcTemplate.update("insert into \"user\" (id, admin, profile_emoji, username) values (1, false, 'x', 'alice')");
+    }
+
+    private void insertScroll(int id, String name, String content) {
+        jdbcTemplate.update("insert into scroll (id, content, downloads, name, user_id) values (?, ?, 0, ?, 1)",
+                id, content.getBytes(StandardCharsets.UTF_8), name);
+    }
+
+    private String storedText(String hash) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        jdbcTemplate.query("select data from content_blob_data where hash = ? order by chunk_index",
+                rs -> {
+                    out.writeBytes(rs.getBytes(1));
+                }, hash);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private List<String> columns(String table) {
+        return jdbcTemplate.queryForList("select lower(column_name) from information_schema.columns "
+                + "where lower(table_name) = ?", String.class, table);
+    }
+
+    private void assertTablesExist() {
+        List<String> tables = jdbcTemplate.queryForList(
+                "select lower(table_name) from information_schema.tables where table_schema = 'PUBLIC'", String.class);
+        assertTrue(tables.containsAll(List.of("user", "scroll", "content_blob", "content_blob_data", "content_chunk",
+                "upload_session", "download_event", "download_uniques", "download_uniques_rollup")), tables::toString);
+    }
+}
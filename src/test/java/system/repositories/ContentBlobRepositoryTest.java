@@ -0,0 +1,47 @@
+package system.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import system.models.ContentBlob;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class ContentBlobRepositoryTest {
+
+    @Autowired
+    private ContentBlobRepository contentBlobRepository;
+
+    @Test
+    void testInsertIfAbsent() {
+        assertTrue(contentBlobRepository.insertIfAbsent(blob("abc123")));
+
+        ContentBlob stored = contentBlobRepository.findById("abc123").orElseThrow();
+        assertEquals(12, stored.getLength());
+        assertEquals(1, stored.getRefCount());
+    }
+
+    @Test
+    void testInsertExistingKeepsTransactionUsable() {
+        contentBlobRepository.insertIfAbsent(blob("abc123"));
+
+        assertFalse(contentBlobRepository.insertIfAbsent(blob("abc123")));
+
+        // the failed insert must not have doomed the rest of the transaction
+        assertEquals(1, contentBlobRepository.addReference("abc123"));
+        assertEquals(2, contentBlobRepository.findById("abc123").orElseThrow().getRefCount());
+    }
+
+    private static ContentBlob blob(String hash) {
+        return ContentBlob.builder()
+                .hash(hash)
+                .length(12)
+                .storedLength(12)
+                .refCount(1)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,202 @@
+package system.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import system.models.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class ScrollRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ScrollRepository scrollRepository;
+
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        alice = entityManager.persist(User.builder().username("alice").profileEmoji("😀").build());
+        bob = entityManager.persist(User.builder().username("bob").profileEmoji("😀").build());
+
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        persist("Fire Scroll", alice, 3, now.minusDays(4), null);
+        persist("Water Scroll", alice, 1, now.minusDays(3), "secret");
+        persist("Earth Scroll", bob, 3, now.minusDays(2), "");
+        persist("Air Scroll", bob, 2, now.minusDays(1), null);
+        persist("Lightning 100%", bob, 0, now, null);
+        entityManager.flush();
+    }
+
+    @Test
+    void testPagesFollowOnWithoutGapsOrRepeats() {
+        ScrollSearch search = ScrollSearch.builder().sort(ScrollSort.DOWNLOADS_DESC).build();
+
+        List<ScrollSummary> seen = new ArrayList<>();
+        ScrollCursor cursor = null;
+        List<ScrollSummary> page;
+        do {
+            page = scrollRepository.findSummaryPage(search, cursor, 2);
+            seen.addAll(page);
+            cursor = page.isEmpty() ? null : ScrollCursor.after(ScrollSort.DOWNLOADS_DESC, page.get(page.size() - 1));
+        } while (page.size() == 2);
+
+        assertEquals(List.of(3, 3, 2, 1, 0), seen.stream().map(ScrollSummary::getDownloads).toList());
+        // equal download counts fall back to the id order
+        assertTrue(seen.get(0).getId() > seen.get(1).getId());
+        assertEquals(5, seen.stream().map(ScrollSummary::getId).distinct().count());
+    }
+
+    @Test
+    void testRecentOrder() {
+        List<ScrollSummary> page = scrollRepository.findSummaryPage(new ScrollSearch(), null, 10);
+
+        assertEquals(List.of("Lightning 100%", "Air Scroll", "Earth Scroll", "Water Scroll", "Fire Scroll"),
+                page.stream().map(ScrollSummary::getName).toList());
+    }
+
+    @Test
+    void testSummaryColumns() {
+        List<ScrollSummary> page = scrollRepository.findSummaryPage(
+                ScrollSearch.builder().sort(ScrollSort.ID).build(), null, 10);
+
+        assertEquals(List.of("alice", "alice", "bob", "bob", "bob"), page.stream().map(ScrollSummary::getUploader).toList());
+        assertEquals(List.of(false, true, false, false, false),
+                page.stream().map(ScrollSummary::isPasswordProtected).toList());
+    }
+
+    @Test
+    void testFilters() {
+        assertEquals(2, scrollRepository.findSummaryPage(
+                ScrollSearch.builder().uploaderId(alice.getId()).build(), null, 10).size());
+        assertEquals(List.of("Water Scroll"), names(ScrollSearch.builder().name("water").build()));
+        // % in the search text is matched literally
+        assertEquals(List.of("Lightning 100%"), names(ScrollSearch.builder().name("0%").build()));
+        assertEquals(List.of("Air Scroll", "Earth Scroll"), names(ScrollSearch.builder()
+                .createdFrom(LocalDateTime.of(2024, 4, 29, 0, 0))
+                .createdTo(LocalDateTime.of(2024, 4, 30, 23, 59))
+                .build()));
+    }
+
+    @Test
+    void testCombinedFilters() {
+        assertEquals(List.of("Earth Scroll", "Air Scroll"), names(ScrollSearch.builder()
+                .minDownloads(2)
+                .maxDownloads(3)
+                .uploaderId(bob.getId())
+                .sort(ScrollSort.ID)
+                .build()));
+        assertEquals(List.of("Water Scroll"), names(ScrollSearch.builder()
+                .name("scroll")
+                .passwordProtected(true)
+                .build()));
+        // an empty password counts as open
+        assertEquals(List.of("Fire Scroll", "Earth Scroll"), names(ScrollSearch.builder()
+                .passwordProtected(false)
+                .minDownloads(3)
+                .sort(ScrollSort.ID)
+                .build()));
+    }
+
+    @Test
+    void testFindByNameIgnoreCase() {
+        assertEquals("Water Scroll", scrollRepository.findByNameIgnoreCase("wATER scroll").orElseThrow().getName());
+        assertTrue(scrollRepository.findByNameIgnoreCase("Water").isEmpty());
+    }
+
+    @Test
+    void testCountByUserIdIn() {
+        List<ScrollRepository.UploaderCount> counts = scrollRepository.countByUserIdIn(List.of(alice.getId(), bob.getId()));
+
+        assertEquals(2, counts.size());
+        for (ScrollRepository.UploaderCount count : counts) {
+            assertEquals(count.getUserId() == alice.getId() ? 2 : 3, count.getScrollCount());
+        }
+    }
+
+    @Test
+    void testFindMostDownloaded() {
+        List<ScrollRepository.IdAndDownloads> top = scrollRepository.findMostDownloaded(PageRequest.of(0, 3));
+
+        assertEquals(List.of(3, 3, 2), top.stream().map(ScrollRepository.IdAndDownloads::getDownloads).toList());
+        assertTrue(top.get(0).getId() > top.get(1).getId());
+    }
+
+    @Test
+    void testAdjustDownloadsStopsAtZero() {
+        int water = scrollRepository.findByNameIgnoreCase("Water Scroll").orElseThrow().getId();
+        int fire = scrollRepository.findByNameIgnoreCase("Fire Scroll").orElseThrow().getId();
+
+        assertEquals(2, scrollRepository.adjustDownloads(Map.of(water, 2, fire, -5)));
+        entityManager.clear();
+        assertEquals(3, scrollRepository.findById(water).orElseThrow().getDownloads());
+        assertEquals(0, scrollRepository.findById(fire).orElseThrow().getDownloads());
+    }
+
+    @Test
+    void testAdjustDownloadsSkipsMissingScrolls() {
+        int water = scrollRepository.findByNameIgnoreCase("Water Scroll").orElseThrow().getId();
+
+        assertEquals(1, scrollRepository.adjustDownloads(Map.of(water, 1, -1, 4)));
+        entityManager.clear();
+        assertEquals(2, scrollRepository.findById(water).orElseThrow().getDownloads());
+    }
+
+    @Test
+    void testAdjustDownloadsAcrossStatements() {
+        List<Integer> ids = scrollRepository.findAllIds();
+        Map<Integer, Integer> deltas = new HashMap<>();
+        ids.forEach(id -> deltas.put(id, 10));
+        // enough missing ids to need more than one statement
+        IntStream.range(0, 1200).forEach(i -> deltas.put(-1 - i, 1));
+
+        assertEquals(ids.size(), scrollRepository.adjustDownloads(deltas));
+        entityManager.clear();
+        assertTrue(scrollRepository.findAll().stream().allMatch(scroll -> scroll.getDownloads() >= 10));
+    }
+
+    @Test
+    void testSaveLeavesDownloadsAlone() {
+        Scroll scroll = scrollRepository.findByNameIgnoreCase("Water Scroll").orElseThrow();
+        scrollRepository.adjustDownloads(Map.of(scroll.getId(), 4));
+
+        // an edit made with the copy read before the downloads were counted
+        scroll.setName("Deep Water Scroll");
+        scrollRepository.saveAndFlush(scroll);
+        entityManager.clear();
+
+        Scroll stored = scrollRepository.findById(scroll.getId()).orElseThrow();
+        assertEquals("Deep Water Scroll", stored.getName());
+        assertEquals(5, stored.getDownloads());
+    }
+
+    private List<String> names(ScrollSearch search) {
+        return scrollRepository.findSummaryPage(search, null, 10).stream().map(ScrollSummary::getName).toList();
+    }
+
+    private void persist(String name, User user, int downloads, LocalDateTime createdAt, String password) {
+        entityManager.persist(Scroll.builder()
+                .name(name)
+                .user(user)
+                .downloads(downloads)
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .password(password)
+                .build());
+    }
+}
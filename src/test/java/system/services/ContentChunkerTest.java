@@ -0,0 +1,71 @@
+package system.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.util.unit.DataSize;
+import system.models.ContentChunk;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentChunkerTest {
+
+    @TempDir
+    Path dir;
+
+    private final ContentChunker contentChunker = new ContentChunker(DataSize.ofBytes(5));
+
+    @Test
+    void testIndexSplitsIntoFixedSizeChunks() throws Exception {
+        Path file = write("test content");
+
+        List<ContentChunk> chunks = contentChunker.index("abc123", file);
+
+        assertEquals(3, chunks.size());
+        assertEquals(List.of(0L, 5L, 10L), chunks.stream().map(ContentChunk::getChunkOffset).toList());
+        assertEquals(List.of(5, 5, 2), chunks.stream().map(ContentChunk::getLength).toList());
+        // sha256 of "test "
+        assertEquals("231aa78c52a74a572e40f4a5dcdf24961945a8431e8061974151ffd9c78da39c", chunks.get(0).getChecksum());
+        assertTrue(chunks.stream().allMatch(c -> c.getBlobHash().equals("abc123")));
+    }
+
+    @Test
+    void testIndexEmptyFile() throws Exception {
+        assertTrue(contentChunker.index("abc123", write("")).isEmpty());
+    }
+
+    @Test
+    void testVerifyIntactContent() throws Exception {
+        Path file = write("test content");
+        List<ContentChunk> chunks = contentChunker.index("abc123", file);
+
+        assertTrue(contentChunker.verify(chunks, new FileSystemResource(file)).isEmpty());
+    }
+
+    @Test
+    void testVerifyFindsCorruptChunks() throws Exception {
+        List<ContentChunk> chunks = contentChunker.index("abc123", write("test content"));
+
+        List<Integer> corrupt = contentChunker.verify(chunks, new ByteArrayResource("test CONTENT".getBytes()));
+
+        assertEquals(List.of(1, 2), corrupt);
+    }
+
+    @Test
+    void testVerifyTruncatedContent() throws Exception {
+        List<ContentChunk> chunks = contentChunker.index("abc123", write("test content"));
+
+        assertEquals(List.of(2), contentChunker.verify(chunks, new ByteArrayResource("test conte".getBytes())));
+    }
+
+    private Path write(String content) throws Exception {
+        Path file = Files.createTempFile(dir, "chunked", ".bin");
+        Files.writeString(file, content);
+        return file;
+    }
+}
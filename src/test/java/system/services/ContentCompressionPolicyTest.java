@@ -0,0 +1,31 @@
+package system.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentCompressionPolicyTest {
+
+    private final ContentCompressionPolicy policy = new ContentCompressionPolicy("text/*,application/json");
+
+    @Test
+    void testCompressibleTypes() {
+        assertTrue(policy.isCompressible("text/plain"));
+        assertTrue(policy.isCompressible("text/html; charset=UTF-8"));
+        assertTrue(policy.isCompressible("application/json"));
+    }
+
+    @Test
+    void testAlreadyCompressedOrUnknownTypes() {
+        assertFalse(policy.isCompressible("application/zip"));
+        assertFalse(policy.isCompressible("image/png"));
+        assertFalse(policy.isCompressible("not a type"));
+        assertFalse(policy.isCompressible(null));
+    }
+
+    @Test
+    void testIsWorthKeeping() {
+        assertTrue(policy.isWorthKeeping(1000, 200));
+        assertFalse(policy.isWorthKeeping(1000, 950));
+    }
+}
@@ -0,0 +1,136 @@
+package system.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.data.domain.Pageable;
+import org.springframework.util.unit.DataSize;
+import system.models.ContentBlob;
+import system.models.ContentChunk;
+import system.models.Scroll;
+import system.repositories.ContentBlobRepository;
+import system.repositories.ContentChunkRepository;
+import system.repositories.ScrollRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ContentScrubberTest {
+
+    @TempDir
+    Path dir;
+
+    @Mock
+    private ContentBlobRepository contentBlobRepository;
+
+    @Mock
+    private ContentChunkRepository contentChunkRepository;
+
+    @Mock
+    private ContentStore contentStore;
+
+    @Mock
+    private ScrollRepository scrollRepository;
+
+    private final ContentChunker contentChunker = new ContentChunker(DataSize.ofBytes(5));
+
+    private ContentScrubber contentScrubber;
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        // a high rate keeps the throttle from slowing the tests down
+        contentScrubber = new ContentScrubber(contentBlobRepository, contentChunkRepository, contentStore,
+                contentChunker, scrollRepository, 10, DataSize.ofGigabytes(1), Duration.ofMinutes(5));
+
+        file = Files.writeString(dir.resolve("abc123"), "test content");
+        List<ContentChunk> chunks = contentChunker.index("abc123", file);
+        when(contentChunkRepository.findByBlobHashOrderByChunkIndex("abc123")).thenReturn(chunks);
+        when(contentStore.read("abc123")).thenReturn(Optional.of(new FileSystemResource(file)));
+    }
+
+    @Test
+    void testScrubIntactContent() throws Exception {
+        assertTrue(contentScrubber.scrub("abc123"));
+
+        verify(contentBlobRepository).markVerified(eq("abc123"), eq(false), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testScrubCorruptContent() throws Exception {
+        Files.writeString(file, "test kontent");
+
+        assertFalse(contentScrubber.scrub("abc123"));
+
+        verify(contentBlobRepository).markVerified(eq("abc123"), eq(true), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testScrubMissingContent() throws Exception {
+        when(contentStore.read("abc123")).thenReturn(Optional.empty());
+
+        assertFalse(contentScrubber.scrub("abc123"));
+
+        verify(contentBlobRepository).markVerified(eq("abc123"), eq(true), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testScrubBatchTakesLeastRecentlyVerified() {
+        ContentBlob blob = ContentBlob.builder().hash("abc123").build();
+        when(contentBlobRepository.findLeastRecentlyVerified(any(Pageable.class))).thenReturn(List.of(blob));
+
+        contentScrubber.scrubBatch();
+
+        verify(contentBlobRepository).findLeastRecentlyVerified(argThat(p -> p.getPageSize() == 10));
+        verify(contentBlobRepository).markVerified(eq("abc123"), eq(false), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testRunsOnItsOwnThread() throws Exception {
+        ContentScrubber scheduled = new ContentScrubber(contentBlobRepository, contentChunkRepository, contentStore,
+                contentChunker, scrollRepository, 10, DataSize.ofGigabytes(1), Duration.ofMillis(10));
+        CompletableFuture<String> thread = new CompletableFuture<>();
+        when(contentBlobRepository.findLeastRecentlyVerified(any(Pageable.class))).thenAnswer(invocation -> {
+            thread.complete(Thread.currentThread().getName());
+            return List.of();
+        });
+
+        scheduled.start();
+        try {
+            assertEquals("content-scrubber", thread.get(5, TimeUnit.SECONDS));
+        } finally {
+            scheduled.stop();
+        }
+    }
+
+    @Test
+    void testFindCorruptScrolls() {
+        Scroll scroll = new Scroll();
+        when(contentBlobRepository.findCorruptHashes()).thenReturn(List.of("abc123"));
+        when(scrollRepository.findByContentHashIn(List.of("abc123"))).thenReturn(List.of(scroll));
+
+        assertEquals(List.of(scroll), contentScrubber.findCorruptScrolls());
+    }
+
+    @Test
+    void testFindCorruptScrollsWhenNoneCorrupt() {
+        when(contentBlobRepository.findCorruptHashes()).thenReturn(List.of());
+
+        assertTrue(contentScrubber.findCorruptScrolls().isEmpty());
+        verifyNoInteractions(scrollRepository);
+    }
+}
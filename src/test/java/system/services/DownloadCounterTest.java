@@ -0,0 +1,92 @@
+package system.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DownloadCounterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DownloadCounter downloadCounter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        downloadCounter = new DownloadCounter(jdbcTemplate, transactionManager);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlushWritesOneIncrementPerScroll() {
+        downloadCounter.record(1);
+        downloadCounter.record(1);
+        downloadCounter.record(2);
+
+        downloadCounter.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("downloads = downloads + ?"), batch.capture());
+        assertEquals(Map.of(1, 2L, 2, 1L), batch.getValue().stream()
+                .collect(Collectors.toMap(row -> (Integer) row[1], row -> (Long) row[0])));
+        assertEquals(0, downloadCounter.unflushed(1));
+    }
+
+    @Test
+    void testFlushWithoutDownloadsWritesNothing() {
+        downloadCounter.flush();
+        downloadCounter.record(1);
+        downloadCounter.flush();
+        downloadCounter.flush();
+
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void testFailedFlushKeepsCounts() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("database unavailable"));
+        downloadCounter.record(1);
+        downloadCounter.record(1);
+
+        downloadCounter.flush();
+
+        assertEquals(2, downloadCounter.unflushed(1));
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void testConcurrentDownloadsAreAllCounted() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    downloadCounter.record(1);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(80_000, downloadCounter.unflushed(1));
+    }
+}
@@ -0,0 +1,69 @@
+package system.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DownloadJournalTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DownloadJournal downloadJournal;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        downloadJournal = new DownloadJournal(jdbcTemplate, transactionManager);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlushInsertsEveryEventInOneBatch() {
+        downloadJournal.append(1, "alice", 12);
+        downloadJournal.append(1, "bob", 12);
+        downloadJournal.append(2, null, 40);
+
+        downloadJournal.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("insert into download_event"), batch.capture());
+        assertEquals(3, batch.getValue().size());
+        assertEquals("alice", batch.getValue().get(0)[1]);
+        assertEquals(40L, batch.getValue().get(2)[3]);
+        assertEquals(0, downloadJournal.backlog());
+    }
+
+    @Test
+    void testFlushWithoutEventsWritesNothing() {
+        downloadJournal.flush();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void testFailedFlushKeepsEvents() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("database unavailable"));
+        downloadJournal.append(1, "alice", 12);
+        downloadJournal.append(2, "bob", 40);
+
+        downloadJournal.flush();
+
+        assertEquals(2, downloadJournal.backlog());
+        verify(transactionManager).rollback(any());
+    }
+}
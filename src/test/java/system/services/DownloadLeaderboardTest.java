@@ -0,0 +1,94 @@
+package system.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import system.models.DownloadWindow;
+import system.repositories.ScrollRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DownloadLeaderboardTest {
+
+    private static final long NOW = Duration.ofDays(1000).toMillis();
+
+    @Mock
+    private ScrollRepository scrollRepository;
+
+    private DownloadLeaderboard downloadLeaderboard;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        downloadLeaderboard = new DownloadLeaderboard(scrollRepository, 10);
+    }
+
+    @Test
+    void testRanksEachWindow() {
+        record(1, NOW, 3);
+        record(2, NOW, 5);
+        // downloaded a lot two hours ago, nothing since
+        record(3, NOW - Duration.ofHours(2).toMillis(), 8);
+
+        assertEquals(List.of(2, 1), List.copyOf(downloadLeaderboard.top(DownloadWindow.HOUR, 10, NOW).keySet()));
+        assertEquals(Map.of(3, 8L, 2, 5L, 1, 3L), downloadLeaderboard.top(DownloadWindow.DAY, 10, NOW));
+    }
+
+    @Test
+    void testOldDownloadsLeaveTheWindow() {
+        record(1, NOW, 3);
+
+        long tomorrow = NOW + Duration.ofDays(1).toMillis();
+        record(2, tomorrow, 1);
+
+        assertEquals(Map.of(2, 1L), downloadLeaderboard.top(DownloadWindow.DAY, 10, tomorrow));
+        assertEquals(Map.of(2, 1L), downloadLeaderboard.top(DownloadWindow.HOUR, 10, tomorrow));
+    }
+
+    @Test
+    void testRankingIncludesUndrainedDownloads() {
+        downloadLeaderboard.record(1);
+
+        assertEquals(Map.of(1, 1L), downloadLeaderboard.top(DownloadWindow.HOUR, 10, NOW));
+    }
+
+    @Test
+    void testAllTimeIsReadFromStoredCounts() {
+        List<ScrollRepository.IdAndDownloads> stored = List.of(idAndDownloads(1, 40), idAndDownloads(2, 0));
+        when(scrollRepository.findMostDownloaded(PageRequest.of(0, 5))).thenReturn(stored);
+
+        assertEquals(Map.of(1, 40L), downloadLeaderboard.top(DownloadWindow.ALL_TIME, 5, NOW));
+    }
+
+    @Test
+    void testRemove() {
+        record(1, NOW, 3);
+        record(2, NOW, 1);
+
+        downloadLeaderboard.remove(1);
+
+        assertEquals(Map.of(2, 1L), downloadLeaderboard.top(DownloadWindow.HOUR, 10, NOW));
+        assertEquals(Map.of(2, 1L), downloadLeaderboard.top(DownloadWindow.DAY, 10, NOW));
+    }
+
+    private void record(int scrollId, long at, int times) {
+        for (int i = 0; i < times; i++) {
+            downloadLeaderboard.record(scrollId);
+        }
+        downloadLeaderboard.drain(at);
+    }
+
+    private static ScrollRepository.IdAndDownloads idAndDownloads(int id, int downloads) {
+        ScrollRepository.IdAndDownloads scroll = mock(ScrollRepository.IdAndDownloads.class);
+        when(scroll.getId()).thenReturn(id);
+        when(scroll.getDownloads()).thenReturn(downloads);
+        return scroll;
+    }
+}
@@ -0,0 +1,88 @@
+package system.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import system.models.DownloadBucket;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(DownloadStatistics.class)
+@TestPropertySource(properties = "vsas.downloads.rollup-batch-size=2")
+class DownloadStatisticsTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DownloadStatistics downloadStatistics;
+
+    private final LocalDateTime thisHour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+
+    @Test
+    void testRollUpFoldsEventsIntoBuckets() {
+        log(1, thisHour, 10);
+        log(1, thisHour.plusMinutes(5), 10);
+        log(2, thisHour, 30);
+        log(1, thisHour.minusDays(2), 10);
+        log(3, thisHour.minusDays(20), 10);
+
+        downloadStatistics.rollUp();
+
+        List<DownloadBucket> hours = downloadStatistics.hourlyTotals(3);
+        assertEquals(3, hours.size());
+        assertEquals(new DownloadBucket(thisHour, 3, 50), hours.get(2));
+        assertEquals(0, hours.get(0).downloads());
+
+        List<DownloadBucket> days = downloadStatistics.dailyTotals(7);
+        assertEquals(7, days.size());
+        assertEquals(3, days.get(6).downloads());
+        assertEquals(1, days.get(4).downloads());
+
+        assertEquals(Map.of(1, 3L, 2, 1L), downloadStatistics.recentDownloads(List.of(1, 2, 3), 7));
+    }
+
+    @Test
+    void testRollUpCountsEachEventOnce() {
+        log(1, thisHour, 10);
+        downloadStatistics.rollUp();
+        downloadStatistics.rollUp();
+        log(1, thisHour, 10);
+        downloadStatistics.rollUp();
+
+        assertEquals(2, downloadStatistics.hourlyTotals(1).get(0).downloads());
+        assertEquals(20, downloadStatistics.dailyTotals(1).get(0).bytes());
+    }
+
+    @Test
+    void testRollUpBatchStopsAtBatchSize() {
+        log(1, thisHour, 10);
+        log(1, thisHour, 10);
+        log(1, thisHour, 10);
+
+        assertTrue(downloadStatistics.rollUpBatch());
+        assertEquals(2, downloadStatistics.hourlyTotals(1).get(0).downloads());
+        assertFalse(downloadStatistics.rollUpBatch());
+        assertEquals(3, downloadStatistics.hourlyTotals(1).get(0).downloads());
+    }
+
+    @Test
+    void testRecentDownloadsWithoutScrolls() {
+        assertEquals(Map.of(), downloadStatistics.recentDownloads(List.of(), 7));
+    }
+
+    private void log(int scrollId, LocalDateTime at, long bytes) {
+        jdbcTemplate.update("insert into download_event (scroll_id, username, downloaded_at, bytes) values (?, ?, ?, ?)",
+                scrollId, "alice", Timestamp.valueOf(at), bytes);
+    }
+}
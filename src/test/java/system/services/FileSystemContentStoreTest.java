@@ -0,0 +1,126 @@
+package system.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSystemContentStoreTest {
+
+    @TempDir
+    Path root;
+
+    private FileSystemContentStore contentStore;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        contentStore = new FileSystemContentStore(root.toString());
+    }
+
+    @Test
+    void testWriteAndRead() throws Exception {
+        contentStore.write("abc123", stage("test content"));
+
+        Resource resource = contentStore.read("abc123").orElseThrow();
+        assertTrue(resource.isFile());
+        assertEquals(root.resolve("ab").resolve("abc123"), resource.getFile().toPath());
+        assertArrayEquals("test content".getBytes(), resource.getContentAsByteArray());
+    }
+
+    @Test
+    void testWriteReplacesExistingContent() throws Exception {
+        contentStore.write("abc123", stage("old content"));
+        contentStore.write("abc123", stage("new content"));
+
+        assertArrayEquals("new content".getBytes(), contentStore.read("abc123").orElseThrow().getContentAsByteArray());
+    }
+
+    @Test
+    void testReadMissing() {
+        assertTrue(contentStore.read("def456").isEmpty());
+    }
+
+    @Test
+    void testDelete() throws Exception {
+        contentStore.write("abc123", stage("test content"));
+
+        contentStore.delete("abc123");
+
+        assertTrue(contentStore.read("abc123").isEmpty());
+    }
+
+    @Test
+    void testDeleteWaitsForCommit() throws Exception {
+        contentStore.write("abc123", stage("test content"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            contentStore.delete("abc123");
+            assertTrue(contentStore.read("abc123").isPresent());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertTrue(contentStore.read("abc123").isEmpty());
+    }
+
+    @Test
+    void testDeleteKeepsContentWrittenAgainBeforeCommit() throws Exception {
+        contentStore.write("abc123", stage("test content"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            contentStore.delete("abc123");
+            // another upload of the same content stores it again before the delete commits
+            contentStore.write("abc123", stage("test content"));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertArrayEquals("test content".getBytes(), contentStore.read("abc123").orElseThrow().getContentAsByteArray());
+    }
+
+    @Test
+    void testWriteIsUndoneOnRollback() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            contentStore.write("abc123", stage("test content"));
+            assertTrue(contentStore.read("abc123").isPresent());
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertTrue(contentStore.read("abc123").isEmpty());
+    }
+
+    @Test
+    void testWriteIsKeptOnCommit() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            contentStore.write("abc123", stage("test content"));
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertTrue(contentStore.read("abc123").isPresent());
+    }
+
+    private StagedContent stage(String content) throws Exception {
+        Path file = Files.createTempFile(root, "staged", ".upload");
+        Files.writeString(file, content);
+        return new StagedContent(file, content.length(), "unused");
+    }
+}
@@ -0,0 +1,69 @@
+package system.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    void testEmptySketchCountsNothing() {
+        assertEquals(0, new HyperLogLog().estimate());
+    }
+
+    @Test
+    void testSmallCountsAreExact() {
+        HyperLogLog sketch = new HyperLogLog();
+        IntStream.range(0, 20).forEach(i -> sketch.add("user" + i));
+
+        assertEquals(20, sketch.estimate());
+    }
+
+    @Test
+    void testRepeatsAndCaseAreCountedOnce() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            sketch.add("alice");
+            sketch.add("ALICE");
+            sketch.add("bob");
+        }
+
+        assertEquals(2, sketch.estimate());
+    }
+
+    @Test
+    void testLargeCountsStayWithinError() {
+        HyperLogLog sketch = new HyperLogLog();
+        IntStream.range(0, 100_000).forEach(i -> sketch.add("user" + i));
+
+        // ten times the standard error of about 3%, so the test never fails by chance
+        assertEquals(100_000, sketch.estimate(), 100_000 * 0.1);
+    }
+
+    @Test
+    void testMergeCountsOverlapOnce() {
+        HyperLogLog monday = new HyperLogLog();
+        HyperLogLog tuesday = new HyperLogLog();
+        IntStream.range(0, 3000).forEach(i -> monday.add("user" + i));
+        IntStream.range(2000, 5000).forEach(i -> tuesday.add("user" + i));
+
+        HyperLogLog both = new HyperLogLog();
+        IntStream.range(0, 5000).forEach(i -> both.add("user" + i));
+
+        assertArrayEquals(both.toBytes(), monday.merge(tuesday).toBytes());
+    }
+
+    @Test
+    void testBytesRoundTrip() {
+        HyperLogLog sketch = new HyperLogLog();
+        IntStream.range(0, 500).forEach(i -> sketch.add("user" + i));
+
+        byte[] bytes = sketch.toBytes();
+
+        assertEquals(HyperLogLog.REGISTERS, bytes.length);
+        assertEquals(sketch.estimate(), HyperLogLog.fromBytes(bytes).estimate());
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[10]));
+    }
+}
@@ -0,0 +1,88 @@
+package system.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import system.repositories.ScrollRepository;
+import system.repositories.UserRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class NameAutocompleteIndexTest {
+
+    @Mock
+    private ScrollRepository scrollRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private NameAutocompleteIndex nameAutocompleteIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // the projections are built before stubbing the repositories, mockito cannot stub two mocks at once
+        List<ScrollRepository.IdAndName> scrolls = List.of(
+                scroll(1, "Fire Scroll"), scroll(2, "fish tales"), scroll(3, "Water Scroll"), scroll(4, "Firefly"));
+        List<UserRepository.IdAndUsername> users = List.of(user(1, "alice"), user(2, "Alfred"));
+        when(scrollRepository.findAllNames()).thenReturn(scrolls);
+        when(userRepository.findAllIdsAndUsernames()).thenReturn(users);
+        nameAutocompleteIndex.rebuild();
+    }
+
+    @Test
+    void testCompletesPrefixIgnoringCase() {
+        assertEquals(List.of("Fire Scroll", "Firefly", "fish tales"), nameAutocompleteIndex.completeScrollName("FI", 10));
+        assertEquals(List.of("Fire Scroll", "Firefly"), nameAutocompleteIndex.completeScrollName("fire", 10));
+        assertEquals(List.of("Alfred", "alice"), nameAutocompleteIndex.completeUsername("al", 10));
+    }
+
+    @Test
+    void testLimit() {
+        assertEquals(List.of("Fire Scroll"), nameAutocompleteIndex.completeScrollName("f", 1));
+    }
+
+    @Test
+    void testNoMatches() {
+        assertTrue(nameAutocompleteIndex.completeScrollName("zz", 10).isEmpty());
+        assertTrue(nameAutocompleteIndex.completeUsername("zz", 10).isEmpty());
+    }
+
+    @Test
+    void testRenameAndRemove() {
+        nameAutocompleteIndex.putScroll(1, "Ember Scroll");
+        nameAutocompleteIndex.removeScroll(4);
+        nameAutocompleteIndex.putScroll(5, "Fireball");
+
+        assertEquals(List.of("Fireball"), nameAutocompleteIndex.completeScrollName("fire", 10));
+        assertEquals(List.of("Ember Scroll"), nameAutocompleteIndex.completeScrollName("e", 10));
+    }
+
+    @Test
+    void testNewUser() {
+        nameAutocompleteIndex.putUser(3, "Alba");
+        nameAutocompleteIndex.removeUser(1);
+
+        assertEquals(List.of("Alba", "Alfred"), nameAutocompleteIndex.completeUsername("AL", 10));
+    }
+
+    private static ScrollRepository.IdAndName scroll(int id, String name) {
+        ScrollRepository.IdAndName scroll = mock(ScrollRepository.IdAndName.class);
+        when(scroll.getId()).thenReturn(id);
+        when(scroll.getName()).thenReturn(name);
+        return scroll;
+    }
+
+    private static UserRepository.IdAndUsername user(int id, String username) {
+        UserRepository.IdAndUsername user = mock(UserRepository.IdAndUsername.class);
+        when(user.getId()).thenReturn(id);
+        when(user.getUsername()).thenReturn(username);
+        return user;
+    }
+}
@@ -0,0 +1,37 @@
+package system.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NameBloomFilterTest {
+
+    @Test
+    void testAddedNamesAreAlwaysFound() {
+        NameBloomFilter filter = new NameBloomFilter(1000);
+        IntStream.range(0, 1000).forEach(i -> filter.add("Scroll " + i));
+
+        IntStream.range(0, 1000).forEach(i -> assertTrue(filter.mightContain("Scroll " + i)));
+    }
+
+    @Test
+    void testIgnoresCase() {
+        NameBloomFilter filter = new NameBloomFilter(10);
+        filter.add("Fire Scroll");
+
+        assertTrue(filter.mightContain("fire SCROLL"));
+    }
+
+    @Test
+    void testFalsePositivesStayRare() {
+        NameBloomFilter filter = new NameBloomFilter(1000);
+        IntStream.range(0, 1000).forEach(i -> filter.add("Scroll " + i));
+
+        long falsePositives = IntStream.range(0, 10_000).filter(i -> filter.mightContain("Other " + i)).count();
+
+        // about 1% is expected at capacity, leave room for an unlucky spread
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+}
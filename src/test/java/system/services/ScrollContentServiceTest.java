@@ -0,0 +1,235 @@
+package system.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockMultipartFile;
+import system.models.ContentBlob;
+import system.models.ContentChunk;
+import system.repositories.ContentBlobRepository;
+import system.repositories.ContentChunkRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ScrollContentServiceTest {
+
+    @Mock
+    private ContentStore contentStore;
+
+    @Mock
+    private ContentBlobRepository contentBlobRepository;
+
+    @Mock
+    private ContentCompressionPolicy compressionPolicy;
+
+    @Mock
+    private ContentChunkRepository contentChunkRepository;
+
+    @Mock
+    private ContentChunker contentChunker;
+
+    @InjectMocks
+    private ScrollContentService scrollContentService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testStageUploadedFile() throws Exception {
+        MockMultipartFile upload = new MockMultipartFile("contentFile", "test.txt", "text/plain",
+                "test content".getBytes());
+
+        StagedContent staged = scrollContentService.stage(upload);
+
+        try {
+            assertEquals(12, staged.length());
+            assertEquals("6ae8a75555209fd6c44157c0aed8016e763ff435a19cf186f76863140143ff72", staged.sha256());
+            assertArrayEquals("test content".getBytes(), Files.readAllBytes(staged.file()));
+        } finally {
+            scrollContentService.discard(staged);
+        }
+    }
+
+    @Test
+    void testStageWritesFileAndHash() throws Exception {
+        StagedContent staged = scrollContentService.stage(new ByteArrayInputStream("test content".getBytes()),
+                "image/png");
+
+        try {
+            assertEquals(12, staged.length());
+            assertEquals("6ae8a75555209fd6c44157c0aed8016e763ff435a19cf186f76863140143ff72", staged.sha256());
+            assertArrayEquals("test content".getBytes(), Files.readAllBytes(staged.file()));
+        } finally {
+            scrollContentService.discard(staged);
+        }
+        assertFalse(Files.exists(staged.file()));
+    }
+
+    @Test
+    void testCommitNewContentWritesToStore() throws Exception {
+        StagedContent staged = scrollContentService.stage(new ByteArrayInputStream("test content".getBytes()),
+                "image/png");
+        when(contentBlobRepository.addReference(staged.sha256())).thenReturn(0);
+        when(contentBlobRepository.insertIfAbsent(any())).thenReturn(true);
+
+        scrollContentService.commit(staged);
+
+        verify(contentChunker).index(staged.sha256(), staged.file());
+        verify(contentChunkRepository).saveAll(staged.chunks());
+        verify(contentStore).write(staged.sha256(), staged);
+        verify(contentBlobRepository).insertIfAbsent(argThat(b -> b.getHash().equals(staged.sha256())
+                && b.getRefCount() == 1 && b.getLength() == 12 && b.getEncoding() == null));
+        assertFalse(Files.exists(staged.file()));
+    }
+
+    @Test
+    void testCommitCompressibleContentIsStoredGzipped() throws Exception {
+        String text = "test content ".repeat(100);
+        when(compressionPolicy.isCompressible("text/plain")).thenReturn(true);
+        when(compressionPolicy.isWorthKeeping(anyLong(), anyLong())).thenReturn(true);
+        StagedContent staged = scrollContentService.stage(new ByteArrayInputStream(text.getBytes()), "text/plain");
+        // compressed and checksummed while staging, before any transaction
+        assertNotNull(staged.compressed());
+        verify(contentChunker).index(staged.sha256(), staged.compressed().file());
+        verifyNoInteractions(contentBlobRepository);
+        when(contentBlobRepository.addReference(staged.sha256())).thenReturn(0);
+        when(contentBlobRepository.insertIfAbsent(any())).thenReturn(true);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        doAnswer(invocation -> {
+            StagedContent stored = invocation.getArgument(1);
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(stored.file()))) {
+                in.transferTo(written);
+            }
+            return null;
+        }).when(contentStore).write(eq(staged.sha256()), any());
+
+        scrollContentService.commit(staged);
+
+        assertEquals(text, written.toString());
+        verify(contentBlobRepository).insertIfAbsent(argThat(b -> StoredContent.GZIP.equals(b.getEncoding())
+                && b.getLength() == text.length() && b.getStoredLength() < text.length()));
+        assertFalse(Files.exists(staged.file()));
+        assertFalse(Files.exists(staged.compressed().file()));
+    }
+
+    @Test
+    void testCommitContentStoredConcurrentlyTakesReference() throws Exception {
+        StagedContent staged = scrollContentService.stage(new ByteArrayInputStream("test content".getBytes()),
+                "image/png");
+        // another upload of the same content inserts the blob between the two calls
+        when(contentBlobRepository.addReference(staged.sha256())).thenReturn(0, 1);
+        when(contentBlobRepository.insertIfAbsent(any())).thenReturn(false);
+
+        scrollContentService.commit(staged);
+
+        verify(contentBlobRepository, times(2)).addReference(staged.sha256());
+        verify(contentStore, never()).write(any(), any());
+        verifyNoInteractions(contentChunkRepository);
+        assertFalse(Files.exists(staged.file()));
+    }
+
+    @Test
+    void testCommitKnownContentOnlyAddsReference() throws Exception {
+        StagedContent staged = scrollContentService.stage(new ByteArrayInputStream("test content".getBytes()),
+                "image/png");
+        when(contentBlobRepository.addReference(staged.sha256())).thenReturn(1);
+
+        scrollContentService.commit(staged);
+
+        verify(contentStore, never()).write(any(), any());
+        verify(contentBlobRepository, never()).insertIfAbsent(any());
+        assertFalse(Files.exists(staged.file()));
+    }
+
+    @Test
+    void testCommitFailureRemovesStagedFile() throws Exception {
+        StagedContent staged = scrollContentService.stage(new ByteArrayInputStream("test content".getBytes()),
+                "image/png");
+        doThrow(new IOException("disk full")).when(contentStore).write(staged.sha256(), staged);
+
+        assertThrows(UncheckedIOException.class, () -> scrollContentService.commit(staged));
+        assertFalse(Files.exists(staged.file()));
+    }
+
+    @Test
+    void testLoad() {
+        Resource content = new ByteArrayResource("test content".getBytes());
+        ContentBlob blob = ContentBlob.builder().hash("abc123").length(12).encoding(StoredContent.GZIP).build();
+        when(contentBlobRepository.findById("abc123")).thenReturn(Optional.of(blob));
+        when(contentStore.read("abc123")).thenReturn(Optional.of(content));
+
+        StoredContent result = scrollContentService.load("abc123").orElseThrow();
+
+        assertEquals(content, result.resource());
+        assertTrue(result.isCompressed());
+        assertEquals(12, result.length());
+        assertTrue(scrollContentService.load(null).isEmpty());
+        assertTrue(scrollContentService.load("def456").isEmpty());
+    }
+
+    @Test
+    void testReleaseLastReferenceDeletesContent() {
+        when(contentBlobRepository.deleteIfUnreferenced("abc123")).thenReturn(1);
+
+        scrollContentService.release("abc123");
+
+        verify(contentBlobRepository).removeReference("abc123");
+        verify(contentChunkRepository).deleteByBlobHash("abc123");
+        verify(contentStore).delete("abc123");
+    }
+
+    @Test
+    void testReleaseSharedContentKeepsContent() {
+        when(contentBlobRepository.deleteIfUnreferenced("abc123")).thenReturn(0);
+
+        scrollContentService.release("abc123");
+
+        verify(contentBlobRepository).removeReference("abc123");
+        verify(contentStore, never()).delete(any());
+    }
+
+    @Test
+    void testReleaseWithoutContent() {
+        scrollContentService.release(null);
+
+        verifyNoInteractions(contentBlobRepository, contentStore);
+    }
+
+    @Test
+    void testVerify() {
+        List<ContentChunk> chunks = List.of(ContentChunk.builder().chunkIndex(0).build());
+        Resource content = new ByteArrayResource("test content".getBytes());
+        when(contentChunkRepository.findByBlobHashOrderByChunkIndex("abc123")).thenReturn(chunks);
+        when(contentStore.read("abc123")).thenReturn(Optional.of(content));
+        when(contentChunker.verify(chunks, content)).thenReturn(List.of());
+
+        assertTrue(scrollContentService.verify("abc123").isEmpty());
+    }
+
+    @Test
+    void testVerifyMissingContentFailsEveryChunk() {
+        List<ContentChunk> chunks = List.of(ContentChunk.builder().chunkIndex(0).build(),
+                ContentChunk.builder().chunkIndex(1).build());
+        when(contentChunkRepository.findByBlobHashOrderByChunkIndex("abc123")).thenReturn(chunks);
+        when(contentStore.read("abc123")).thenReturn(Optional.empty());
+
+        assertEquals(List.of(0, 1), scrollContentService.verify("abc123"));
+    }
+}
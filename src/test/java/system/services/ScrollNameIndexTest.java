@@ -0,0 +1,84 @@
+package system.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import system.repositories.ScrollRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ScrollNameIndexTest {
+
+    @Mock
+    private ScrollRepository scrollRepository;
+
+    private ScrollNameIndex scrollNameIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(scrollRepository.findAllNames()).thenReturn(List.of(
+                name(1, "Scroll of Fire"),
+                name(2, "Scroll of Water"),
+                name(3, "Firewall Notes")));
+        scrollNameIndex = new ScrollNameIndex(scrollRepository);
+        scrollNameIndex.rebuild();
+    }
+
+    @Test
+    void testSearchBeforeBuild() {
+        assertTrue(new ScrollNameIndex(scrollRepository).search("fire").isEmpty());
+    }
+
+    @Test
+    void testSearchIgnoresCase() {
+        assertEquals(Optional.of(Set.of(1, 3)), scrollNameIndex.search("FIRE"));
+    }
+
+    @Test
+    void testSearchConfirmsCandidates() {
+        // "of w" and "ater" share trigrams with scroll 1 but only scroll 2 contains the whole text
+        assertEquals(Optional.of(Set.of(2)), scrollNameIndex.search("of water"));
+        assertEquals(Optional.of(Set.of()), scrollNameIndex.search("fire of"));
+    }
+
+    @Test
+    void testSearchShortText() {
+        assertEquals(Optional.of(Set.of(1, 2)), scrollNameIndex.search("of"));
+    }
+
+    @Test
+    void testPutRenamesScroll() {
+        scrollNameIndex.put(1, "Scroll of Ice");
+
+        assertEquals(Optional.of(Set.of(3)), scrollNameIndex.search("fire"));
+        assertEquals(Optional.of(Set.of(1)), scrollNameIndex.search("ice"));
+    }
+
+    @Test
+    void testRemove() {
+        scrollNameIndex.remove(3);
+
+        assertEquals(Optional.of(Set.of(1)), scrollNameIndex.search("fire"));
+    }
+
+    private static ScrollRepository.IdAndName name(int id, String name) {
+        return new ScrollRepository.IdAndName() {
+            @Override
+            public int getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+}
@@ -0,0 +1,173 @@
+package system.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import system.models.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScrollSearchCacheTest {
+
+    private ScrollSearchCache scrollSearchCache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private User alice;
+
+    @BeforeEach
+    void setUp() {
+        scrollSearchCache = new ScrollSearchCache(3, Duration.ofMinutes(1));
+        alice = new User();
+        alice.setId(1);
+    }
+
+    @Test
+    void testRepeatedSearchIsServedFromCache() {
+        ScrollPage first = scrollSearchCache.get(byName("Fire"), null, loader(1));
+        ScrollPage second = scrollSearchCache.get(byName("fIRE"), null, loader(1));
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testLoaderGetsNormalizedSearch() {
+        ScrollSearch search = ScrollSearch.builder().name("Fire").text("  Dragon   FIRE ").build();
+
+        scrollSearchCache.get(search, null, normalized -> {
+            assertEquals("fire", normalized.getName());
+            assertEquals("dragon fire", normalized.getText());
+            assertEquals(ScrollSort.RECENT, normalized.getSort());
+            return ScrollPage.empty();
+        });
+    }
+
+    @Test
+    void testCursorIsPartOfTheKey() {
+        scrollSearchCache.get(byName("Fire"), null, loader(1));
+        scrollSearchCache.get(byName("Fire"), "next", loader(2));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testExpiredEntriesAreReloaded() {
+        scrollSearchCache = new ScrollSearchCache(3, Duration.ZERO);
+
+        scrollSearchCache.get(byName("Fire"), null, loader(1));
+        scrollSearchCache.get(byName("Fire"), null, loader(1));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsDropped() {
+        scrollSearchCache.get(byName("a"), null, loader(1));
+        scrollSearchCache.get(byName("b"), null, loader(2));
+        scrollSearchCache.get(byName("c"), null, loader(3));
+        scrollSearchCache.get(byName("a"), null, loader(1));
+        scrollSearchCache.get(byName("d"), null, loader(4));
+
+        assertEquals(3, scrollSearchCache.size());
+        scrollSearchCache.get(byName("a"), null, loader(1));
+        assertEquals(4, loads.get());
+        scrollSearchCache.get(byName("b"), null, loader(2));
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    void testSavedScrollThatCouldMatchEvictsSearch() {
+        scrollSearchCache.get(byName("fire"), null, loader(1));
+        scrollSearchCache.get(byName("water"), null, loader(2));
+
+        scrollSearchCache.evict(scroll(9, "Wildfire", 0));
+
+        assertEquals(1, scrollSearchCache.size());
+        scrollSearchCache.get(byName("water"), null, loader(2));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testScrollOnCachedPageEvictsSearch() {
+        scrollSearchCache.get(byName("fire"), null, loader(1));
+
+        // renamed so it no longer matches, but the cached page still lists it
+        scrollSearchCache.evict(scroll(1, "Ember", 0));
+
+        assertEquals(0, scrollSearchCache.size());
+    }
+
+    @Test
+    void testUnrelatedScrollKeepsSearch() {
+        scrollSearchCache.get(ScrollSearch.builder().uploaderId(2).build(), null, loader(1));
+        scrollSearchCache.get(ScrollSearch.builder().minDownloads(10).build(), null, loader(2));
+        scrollSearchCache.get(ScrollSearch.builder().passwordProtected(true).build(), null, loader(3));
+
+        scrollSearchCache.evict(scroll(9, "Fire", 5));
+
+        assertEquals(3, scrollSearchCache.size());
+    }
+
+    @Test
+    void testDateRangeMatching() {
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        scrollSearchCache.get(ScrollSearch.builder().createdFrom(now.minusDays(1)).createdTo(now).build(), null, loader(1));
+        scrollSearchCache.get(ScrollSearch.builder().createdFrom(now.plusDays(1)).build(), null, loader(2));
+
+        Scroll scroll = scroll(9, "Fire", 0);
+        scroll.setCreatedAt(now.minusHours(1));
+        scrollSearchCache.evict(scroll);
+
+        assertEquals(1, scrollSearchCache.size());
+    }
+
+    @Test
+    void testTextSearchesAreEvictedOnReindex() {
+        scrollSearchCache.get(ScrollSearch.builder().text("dragon").build(), null, loader(1));
+        scrollSearchCache.get(byName("fire"), null, loader(2));
+
+        scrollSearchCache.evictTextSearches();
+
+        assertEquals(1, scrollSearchCache.size());
+    }
+
+    @Test
+    void testResultLoadedAcrossAnEvictionIsNotKept() {
+        scrollSearchCache.get(byName("fire"), null, search -> {
+            scrollSearchCache.evict(scroll(9, "Unrelated", 0));
+            return page(1);
+        });
+
+        assertEquals(0, scrollSearchCache.size());
+    }
+
+    private Function<ScrollSearch, ScrollPage> loader(int id) {
+        return search -> {
+            loads.incrementAndGet();
+            return page(id);
+        };
+    }
+
+    private static ScrollPage page(int id) {
+        return new ScrollPage(List.of(new ScrollSummary(id, "Scroll " + id, "alice", null, null, 0, false)), null);
+    }
+
+    private static ScrollSearch byName(String name) {
+        return ScrollSearch.builder().name(name).build();
+    }
+
+    private Scroll scroll(int id, String name, int downloads) {
+        Scroll scroll = new Scroll();
+        scroll.setId(id);
+        scroll.setName(name);
+        scroll.setDownloads(downloads);
+        scroll.setUser(alice);
+        return scroll;
+    }
+}
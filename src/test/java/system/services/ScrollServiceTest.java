@@ -2,16 +2,40 @@ package system.services;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import system.models.DownloadAdjustment;
+import system.models.DownloadWindow;
 import system.models.Scroll;
+import system.models.ScrollCursor;
+import system.models.ScrollPage;
+import system.models.ScrollRanking;
+import system.models.ScrollSearch;
+import system.models.ScrollSort;
+import system.models.ScrollSummary;
+import system.models.TextCursor;
 import system.repositories.ScrollRepository;
 
+import java.nio.file.Path;
+
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -21,6 +45,42 @@ class ScrollServiceTest {
     @Mock
     private ScrollRepository scrollRepository;
 
+    @Mock
+    private ScrollContentService scrollContentService;
+
+    @Mock
+    private ScrollNameIndex scrollNameIndex;
+
+    @Mock
+    private ScrollTextIndex scrollTextIndex;
+
+    @Mock
+    private TakenNameFilter takenNameFilter;
+
+    @Mock
+    private NameAutocompleteIndex nameAutocompleteIndex;
+
+    @Mock
+    private ScrollSearchCache scrollSearchCache;
+
+    @Mock
+    private DownloadCounter downloadCounter;
+
+    @Mock
+    private DownloadJournal downloadJournal;
+
+    @Mock
+    private DownloadLeaderboard downloadLeaderboard;
+
+    @Mock
+    private UniqueDownloaders uniqueDownloaders;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private ScrollService scrollService;
 
@@ -35,10 +95,17 @@ class ScrollServiceTest {
         testScroll.setName("Test Scroll");
         testScroll.setCreatedAt(LocalDateTime.now());
         testScroll.setUpdatedAt(LocalDateTime.now());
+
+        // searches run straight through the cache, which has tests of its own
+        when(scrollSearchCache.get(any(), any(), any())).thenAnswer(invocation ->
+                invocation.<Function<ScrollSearch, ScrollPage>>getArgument(2).apply(invocation.getArgument(0)));
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
     }
 
     @Test
     void testNameExists() {
+        when(takenNameFilter.mightHaveScroll(anyString())).thenReturn(true);
         when(scrollRepository.findByNameIgnoreCase("Test Scroll")).thenReturn(Optional.of(testScroll));
         when(scrollRepository.findByNameIgnoreCase("Non-existent Scroll")).thenReturn(Optional.empty());
 
@@ -47,101 +114,254 @@ class ScrollServiceTest {
     }
 
     @Test
-    void testFindByName() {
-        List<Scroll> scrolls = Arrays.asList(testScroll);
-        when(scrollRepository.findByNameContainingIgnoreCase("Test")).thenReturn(scrolls);
+    void testNameExistsSkipsQueryForUnseenName() {
+        when(takenNameFilter.mightHaveScroll("Fresh Scroll")).thenReturn(false);
 
-        List<Scroll> result = scrollService.findByName("Test");
+        assertFalse(scrollService.nameExists("Fresh Scroll"));
+        verify(scrollRepository, never()).findByNameIgnoreCase(any());
+    }
+
+    @Test
+    void testSaveAddsNameToFilter() {
+        scrollService.save(testScroll, null);
 
-        assertEquals(1, result.size());
-        assertEquals("Test Scroll", result.get(0).getName());
+        verify(takenNameFilter).addScroll("Test Scroll");
+        verify(nameAutocompleteIndex).putScroll(1, "Test Scroll");
+        verify(scrollSearchCache).evict(testScroll);
     }
 
     @Test
-    void testFindByUserID() {
-        List<Scroll> scrolls = Arrays.asList(testScroll);
-        when(scrollRepository.findByUserId(1)).thenReturn(scrolls);
+    void testCountByUploader() {
+        ScrollRepository.UploaderCount count = mock(ScrollRepository.UploaderCount.class);
+        when(count.getUserId()).thenReturn(1);
+        when(count.getScrollCount()).thenReturn(3L);
+        when(scrollRepository.countByUserIdIn(List.of(1, 2))).thenReturn(List.of(count));
 
-        List<Scroll> result = scrollService.findByUserID(1);
+        assertEquals(Map.of(1, 3L), scrollService.countByUploader(List.of(1, 2)));
+    }
 
-        assertEquals(1, result.size());
-        assertEquals("Test Scroll", result.get(0).getName());
+    @Test
+    void testCountByUploaderWithoutUsers() {
+        assertTrue(scrollService.countByUploader(List.of()).isEmpty());
+        verify(scrollRepository, never()).countByUserIdIn(any());
     }
 
     @Test
-    void testFindByCreatedAtAfter() {
-        LocalDateTime date = LocalDateTime.now().minusDays(1);
-        List<Scroll> scrolls = Arrays.asList(testScroll);
-        when(scrollRepository.findByCreatedAtAfter(date)).thenReturn(scrolls);
+    void testSearchScrollsWithUserId() {
+        when(scrollRepository.findSummaryPage(any(), isNull(), eq(ScrollService.PAGE_SIZE + 1)))
+                .thenReturn(List.of(summary(1)));
 
-        List<Scroll> result = scrollService.findByCreatedAtAfter(date);
+        ScrollPage result = scrollService.searchScrolls(ScrollSearch.builder().uploaderId(1).build(), null);
 
-        assertEquals(1, result.size());
-        assertEquals("Test Scroll", result.get(0).getName());
+        assertEquals(1, result.scrolls().size());
+        assertNull(result.nextCursor());
+        verify(scrollRepository).findSummaryPage(argThat(search -> search.getUploaderId() == 1), isNull(), anyInt());
     }
 
     @Test
-    void testFindByCreatedAtBetween() {
+    void testSearchScrollsCombinesFilters() {
         LocalDateTime startDate = LocalDateTime.now().minusDays(2);
-        LocalDateTime endDate = LocalDateTime.now();
-        List<Scroll> scrolls = Arrays.asList(testScroll);
-        when(scrollRepository.findByCreatedAtBetween(startDate, endDate)).thenReturn(scrolls);
+        ScrollSearch search = ScrollSearch.builder()
+                .uploaderId(1)
+                .name("Test")
+                .createdFrom(startDate)
+                .minDownloads(5)
+                .passwordProtected(false)
+                .sort(ScrollSort.DOWNLOADS_DESC)
+                .build();
+
+        scrollService.searchScrolls(search, null);
+
+        verify(scrollRepository).findSummaryPage(argThat(applied -> applied.getUploaderId() == 1
+                && "Test".equals(applied.getName()) && startDate.equals(applied.getCreatedFrom())
+                && applied.getMinDownloads() == 5 && Boolean.FALSE.equals(applied.getPasswordProtected())
+                && applied.getSort() == ScrollSort.DOWNLOADS_DESC), isNull(), anyInt());
+    }
 
-        List<Scroll> result = scrollService.findByCreatedAtBetween(startDate, endDate);
+    @Test
+    void testSearchScrollsIntersectsNameAndTextMatches() {
+        when(scrollNameIndex.search("Test")).thenReturn(Optional.of(Set.of(1, 4, 7)));
+        textMatches("dragon", List.of(4, 7, 9));
+
+        scrollService.searchScrolls(ScrollSearch.builder().name("Test").text("dragon").build(), null);
 
-        assertEquals(1, result.size());
-        assertEquals("Test Scroll", result.get(0).getName());
+        verify(scrollRepository).findSummaryPage(argThat(search -> Set.of(4, 7).equals(search.getIds())), isNull(), anyInt());
     }
 
     @Test
-    void testSearchScrollsWithUserId() {
-        List<Scroll> userScrolls = Arrays.asList(testScroll);
-        when(scrollRepository.findByUserId(1)).thenReturn(userScrolls);
+    void testSearchScrollsWithDisjointNameAndTextMatches() {
+        when(scrollNameIndex.search("Test")).thenReturn(Optional.of(Set.of(1)));
+        textMatches("dragon", List.of(4));
 
-        List<Scroll> result = scrollService.searchScrolls(1, null, null, null, null);
+        ScrollPage result = scrollService.searchScrolls(ScrollSearch.builder().name("Test").text("dragon").build(), null);
 
-        assertEquals(1, result.size());
-        assertEquals("Test Scroll", result.get(0).getName());
+        assertTrue(result.scrolls().isEmpty());
+        verify(scrollRepository, never()).findSummaryPage(any(), any(), anyInt());
     }
 
     @Test
-    void testSearchScrollsWithName() {
-        List<Scroll> scrolls = Arrays.asList(testScroll);
-        when(scrollRepository.findByNameContainingIgnoreCase("Test")).thenReturn(scrolls);
+    void testSearchScrollsWithNameBeforeIndexIsBuilt() {
+        scrollService.searchScrolls(ScrollSearch.builder().name("Test").build(), null);
 
-        List<Scroll> result = scrollService.searchScrolls(null, null, "Test", null, null);
+        verify(scrollRepository).findSummaryPage(argThat(search -> "Test".equals(search.getName())), isNull(), anyInt());
+    }
 
-        assertEquals(1, result.size());
-        assertEquals("Test Scroll", result.get(0).getName());
+    @Test
+    void testSearchScrollsWithNameUsesIndex() {
+        when(scrollNameIndex.search("Test")).thenReturn(Optional.of(Set.of(1, 4)));
+
+        scrollService.searchScrolls(ScrollSearch.builder().name("Test").build(), null);
+
+        verify(scrollRepository).findSummaryPage(argThat(search -> search.getName() == null
+                && Set.of(1, 4).equals(search.getIds())), isNull(), anyInt());
     }
 
     @Test
-    void testSearchScrollsWithNonExistentScrollId() {
-        when(scrollRepository.findById(999)).thenReturn(Optional.empty());
+    void testSearchScrollsWithNameWithoutIndexMatches() {
+        when(scrollNameIndex.search("Nothing")).thenReturn(Optional.of(Set.of()));
 
-        List<Scroll> result = scrollService.searchScrolls(null, 999, null, null, null);
+        ScrollPage result = scrollService.searchScrolls(ScrollSearch.builder().name("Nothing").build(), null);
 
-        assertTrue(result.isEmpty());
+        assertTrue(result.scrolls().isEmpty());
+        verify(scrollRepository, never()).findSummaryPage(any(), any(), anyInt());
     }
 
     @Test
     void testSearchScrollsWithDateRange() {
         LocalDateTime startDate = LocalDateTime.now().minusDays(2);
         LocalDateTime endDate = LocalDateTime.now();
-        List<Scroll> scrolls = Arrays.asList(testScroll);
-        when(scrollRepository.findByCreatedAtBetween(startDate, endDate)).thenReturn(scrolls);
 
-        List<Scroll> result = scrollService.searchScrolls(null, null, null, startDate, endDate);
+        scrollService.searchScrolls(ScrollSearch.builder().createdFrom(startDate).createdTo(endDate).build(), null);
+
+        verify(scrollRepository).findSummaryPage(argThat(search -> startDate.equals(search.getCreatedFrom())
+                && endDate.equals(search.getCreatedTo())), isNull(), anyInt());
+    }
+
+    @Test
+    void testSearchScrollsWithText() {
+        textMatches("dragon fire", List.of(4, 2));
+
+        scrollService.searchScrolls(ScrollSearch.builder().text("dragon fire").build(), null);
 
-        assertEquals(1, result.size());
-        assertEquals("Test Scroll", result.get(0).getName());
+        verify(scrollRepository).findSummaryPage(argThat(search -> Set.of(4, 2).equals(search.getIds())), isNull(), anyInt());
+    }
+
+    @Test
+    void testSearchScrollsWithTextKeepsRelevanceOrder() {
+        textMatches("dragon", List.of(4, 2, 9));
+        ScrollSummary older = summary(4, LocalDateTime.now().minusDays(2));
+        ScrollSummary newer = summary(2, LocalDateTime.now().minusDays(1));
+        ScrollSummary newest = summary(9, LocalDateTime.now());
+        when(scrollRepository.findSummaryPage(any(), isNull(), anyInt())).thenReturn(List.of(newest, newer, older));
+
+        ScrollPage result = scrollService.searchScrolls(ScrollSearch.builder().text("dragon").build(), null);
+
+        assertEquals(List.of(older, newer, newest), result.scrolls());
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    void testSearchScrollsWithTextStopsOnceThePageIsFull() {
+        List<Integer> ids = IntStream.range(100, 100 + ScrollService.PAGE_SIZE + 1).boxed().toList();
+        textMatches("dragon", ids, List.of(9));
+        when(scrollRepository.findSummaryPage(any(), isNull(), anyInt()))
+                .thenReturn(ids.stream().map(this::summary).toList());
+
+        ScrollPage result = scrollService.searchScrolls(ScrollSearch.builder().text("dragon").build(), null);
+
+        assertEquals(ScrollService.PAGE_SIZE, result.scrolls().size());
+        assertEquals(new TextCursor(1f, ids.get(ScrollService.PAGE_SIZE - 1)), TextCursor.decode(result.nextCursor()));
+        verify(scrollTextIndex, times(1)).search(eq("dragon"), any(), anyInt());
+    }
+
+    @Test
+    void testSearchScrollsWithTextReadsMoreMatchesWhenFiltered() {
+        List<Integer> ids = IntStream.range(100, 100 + ScrollService.PAGE_SIZE + 1).boxed().toList();
+        textMatches("dragon", ids, List.of(9));
+        ScrollSummary kept = summary(100);
+        ScrollSummary later = summary(9);
+        doReturn(List.of(kept)).when(scrollRepository)
+                .findSummaryPage(argThat(search -> search.getIds().contains(100)), isNull(), anyInt());
+        doReturn(List.of(later)).when(scrollRepository)
+                .findSummaryPage(argThat(search -> Set.of(9).equals(search.getIds())), isNull(), anyInt());
+
+        ScrollPage result = scrollService.searchScrolls(ScrollSearch.builder().uploaderId(1).text("dragon").build(),
+                null);
+
+        assertEquals(List.of(kept, later), result.scrolls());
+        // the second batch continues after the last match of the first, and is twice as large
+        verify(scrollTextIndex).search("dragon", new TextCursor(1f, ids.get(ids.size() - 1)),
+                2 * (ScrollService.PAGE_SIZE + 1));
+    }
+
+    @Test
+    void testSearchScrollsWithTextContinuesAfterCursor() {
+        TextCursor after = new TextCursor(0.5f, 42);
+        textMatches("dragon");
+
+        scrollService.searchScrolls(ScrollSearch.builder().text("dragon").build(), after.encode());
+
+        verify(scrollTextIndex).search("dragon", after, ScrollService.PAGE_SIZE + 1);
+    }
+
+    @Test
+    void testSearchScrollsWithTextWithoutMatches() {
+        textMatches("dragon");
+
+        ScrollPage result = scrollService.searchScrolls(ScrollSearch.builder().text("dragon").build(), null);
+
+        assertTrue(result.scrolls().isEmpty());
+        verify(scrollRepository, never()).findSummaryPage(any(), any(), anyInt());
     }
 
     @Test
     void testSearchScrollsWithNoParams() {
-        List<Scroll> result = scrollService.searchScrolls(null, null, null, null, null);
+        ScrollPage result = scrollService.searchScrolls(new ScrollSearch(), null);
+
+        assertTrue(result.scrolls().isEmpty());
+        verify(scrollRepository, never()).findSummaryPage(any(), any(), anyInt());
+        verify(scrollSearchCache, never()).get(any(), any(), any());
+    }
+
+    @Test
+    void testSearchScrollsServedFromCache() {
+        ScrollPage cached = new ScrollPage(List.of(summary(3)), null);
+        doReturn(cached).when(scrollSearchCache).get(any(), eq("cursor"), any());
+
+        assertSame(cached, scrollService.searchScrolls(ScrollSearch.builder().uploaderId(1).build(), "cursor"));
+        verify(scrollRepository, never()).findSummaryPage(any(), any(), anyInt());
+    }
 
-        assertTrue(result.isEmpty());
+    @Test
+    void testFindPageReturnsCursorWhenMoreRowsFollow() {
+        List<ScrollSummary> rows = IntStream.rangeClosed(1, ScrollService.PAGE_SIZE + 1).mapToObj(this::summary).toList();
+        when(scrollRepository.findSummaryPage(any(), isNull(), eq(ScrollService.PAGE_SIZE + 1))).thenReturn(rows);
+
+        ScrollPage page = scrollService.findPage(ScrollSort.DOWNLOADS_DESC, null);
+
+        assertEquals(ScrollService.PAGE_SIZE, page.scrolls().size());
+        ScrollCursor cursor = ScrollCursor.decode(page.nextCursor(), ScrollSort.DOWNLOADS_DESC);
+        assertEquals(ScrollService.PAGE_SIZE, cursor.id());
+        assertEquals(String.valueOf(ScrollService.PAGE_SIZE), cursor.key());
+    }
+
+    @Test
+    void testFindPageContinuesAfterCursor() {
+        String cursor = new ScrollCursor(ScrollSort.DOWNLOADS_DESC, "7", 12).encode();
+
+        scrollService.findPage(ScrollSort.DOWNLOADS_DESC, cursor);
+
+        verify(scrollRepository).findSummaryPage(argThat(search -> search.getSort() == ScrollSort.DOWNLOADS_DESC),
+                eq(new ScrollCursor(ScrollSort.DOWNLOADS_DESC, "7", 12)), anyInt());
+    }
+
+    @Test
+    void testFindPageIgnoresCursorOfAnotherOrder() {
+        String cursor = new ScrollCursor(ScrollSort.DOWNLOADS_DESC, "7", 12).encode();
+
+        scrollService.findPage(ScrollSort.RECENT, cursor);
+
+        verify(scrollRepository).findSummaryPage(any(), isNull(), anyInt());
     }
 
     @Test
@@ -158,18 +378,17 @@ class ScrollServiceTest {
     }
 
     @Test
-    void testFindAll() {
-        Scroll scroll2 = new Scroll();
-        scroll2.setId(2);
-        scroll2.setName("Another Scroll");
+    void testFindPageFormatsDates() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 14, 30);
+        ScrollSummary summary = new ScrollSummary(1, "Test Scroll", "testuser", createdAt, null, 3, true);
+        when(scrollRepository.findSummaryPage(any(), isNull(), anyInt())).thenReturn(List.of(summary));
 
-        List<Scroll> scrolls = Arrays.asList(testScroll, scroll2);
-        when(scrollRepository.findAll()).thenReturn(scrolls);
+        ScrollPage result = scrollService.findPage(ScrollSort.RECENT, null);
 
-        List<Scroll> result = scrollService.findAll();
-        assertEquals(2, result.size());
-        assertTrue(result.contains(testScroll));
-        assertTrue(result.contains(scroll2));
+        assertEquals(List.of(summary), result.scrolls());
+        assertEquals(createdAt.format(DateTimeFormatter.ofPattern("dd MMM yyyy - hh:mm a")),
+                result.scrolls().get(0).getFormattedCreatedAt());
+        assertNull(result.scrolls().get(0).getFormattedUpdatedAt());
     }
 
     @Test
@@ -202,10 +421,139 @@ class ScrollServiceTest {
         verify(scrollRepository).save(testScroll);
     }
 
+    @Test
+    void testSaveWithContent() throws Exception {
+        StagedContent staged = new StagedContent(Path.of("staged"), 12, "abc123");
+        testScroll.setContentFile(new MockMultipartFile("contentFile", "test.txt", "text/plain", "test content".getBytes()));
+        when(scrollContentService.stage(testScroll.getContentFile())).thenReturn(staged);
+        when(scrollRepository.save(any(Scroll.class))).thenReturn(testScroll);
+
+        Scroll result = scrollService.save(testScroll);
+
+        assertEquals(12, result.getContentLength());
+        assertEquals("abc123", result.getContentHash());
+        verify(scrollContentService).commit(staged);
+        // the upload is staged before the transaction opens
+        InOrder order = inOrder(scrollContentService, transactionTemplate);
+        order.verify(scrollContentService).stage(testScroll.getContentFile());
+        order.verify(transactionTemplate).execute(any());
+    }
+
+    @Test
+    void testSaveWithNewContentReleasesOldContent() {
+        StagedContent staged = new StagedContent(Path.of("staged"), 12, "def456");
+        testScroll.setContentHash("abc123");
+        when(scrollRepository.save(any(Scroll.class))).thenReturn(testScroll);
+
+        scrollService.save(testScroll, staged);
+
+        verify(scrollContentService).commit(staged);
+        verify(scrollContentService).release("abc123");
+        verify(eventPublisher).publishEvent(new ScrollChangedEvent(1));
+    }
+
+    @Test
+    void testSaveWithSameContentKeepsReference() {
+        StagedContent staged = new StagedContent(Path.of("staged"), 12, "abc123");
+        testScroll.setContentHash("abc123");
+        when(scrollRepository.save(any(Scroll.class))).thenReturn(testScroll);
+
+        scrollService.save(testScroll, staged);
+
+        verify(scrollContentService, never()).commit(any());
+        verify(scrollContentService, never()).release(any());
+        verify(scrollContentService).discard(staged);
+    }
+
+    @Test
+    void testSaveWithoutContentKeepsStoredContent() throws Exception {
+        when(scrollRepository.save(any(Scroll.class))).thenReturn(testScroll);
+
+        scrollService.save(testScroll);
+
+        verify(scrollContentService, never()).stage(any(MultipartFile.class));
+        verify(scrollContentService, never()).commit(any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void testFindContent() {
+        StoredContent content = new StoredContent(new ByteArrayResource("test content".getBytes()), null, 12);
+        testScroll.setContentHash("abc123");
+        when(scrollContentService.load("abc123")).thenReturn(Optional.of(content));
+
+        assertEquals(content, scrollService.findContent(testScroll).orElseThrow());
+    }
+
+    @Test
+    void testRecordDownloadKeepsUpdatedAt() {
+        LocalDateTime updatedAt = testScroll.getUpdatedAt();
+
+        testScroll.setContentLength(12L);
+
+        scrollService.recordDownload(testScroll, "testuser");
+
+        assertEquals(updatedAt, testScroll.getUpdatedAt());
+        verify(downloadCounter).record(1);
+        verify(downloadJournal).append(1, "testuser", 12L);
+        verify(downloadLeaderboard).record(1);
+        verify(uniqueDownloaders).record(1, "testuser");
+        verify(scrollRepository, never()).save(any());
+    }
+
+    @Test
+    void testAdjustDownloadsNetsCorrectionsPerScroll() {
+        when(scrollRepository.adjustDownloads(Map.of(1, 3, 2, -1))).thenReturn(2);
+
+        int adjusted = scrollService.adjustDownloads(List.of(
+                new DownloadAdjustment(1, 5),
+                new DownloadAdjustment(2, -1),
+                new DownloadAdjustment(1, -2),
+                new DownloadAdjustment(3, 4),
+                new DownloadAdjustment(3, -4)));
+
+        assertEquals(2, adjusted);
+        verify(scrollRepository).adjustDownloads(Map.of(1, 3, 2, -1));
+    }
+
+    @Test
+    void testAdjustDownloadsWithNothingToChange() {
+        assertEquals(0, scrollService.adjustDownloads(List.of(new DownloadAdjustment(1, 0))));
+        verify(scrollRepository, never()).adjustDownloads(any());
+    }
+
+    @Test
+    void testFindMostDownloadedKeepsRankingOrder() {
+        Map<Integer, Long> top = new LinkedHashMap<>();
+        top.put(2, 40L);
+        top.put(1, 25L);
+        top.put(3, 10L);
+        when(downloadLeaderboard.top(DownloadWindow.DAY, 3)).thenReturn(top);
+        // scroll 3 was deleted since it was downloaded
+        List<ScrollRepository.IdAndName> names = List.of(idAndName(1, "Fire Scroll"), idAndName(2, "Water Scroll"));
+        when(scrollRepository.findNamesByIdIn(top.keySet())).thenReturn(names);
+
+        List<ScrollRanking> rankings = scrollService.findMostDownloaded(DownloadWindow.DAY, 3);
+
+        assertEquals(List.of(new ScrollRanking(2, "Water Scroll", 40), new ScrollRanking(1, "Fire Scroll", 25)),
+                rankings);
+    }
+
+    @Test
+    void testFindMostDownloadedWithoutDownloads() {
+        when(downloadLeaderboard.top(DownloadWindow.HOUR, 10)).thenReturn(Map.of());
+
+        assertTrue(scrollService.findMostDownloaded(DownloadWindow.HOUR, 10).isEmpty());
+        verify(scrollRepository, never()).findNamesByIdIn(any());
+    }
+
     @Test
     void testDelete() {
+        testScroll.setContentHash("abc123");
         scrollService.delete(testScroll);
+        verify(scrollContentService).release("abc123");
         verify(scrollRepository).delete(testScroll);
+        verify(downloadLeaderboard).remove(1);
     }
 
     @Test
@@ -232,13 +580,22 @@ class ScrollServiceTest {
     }
 
     @Test
-    void testFindAllWithEmptyList() {
-        when(scrollRepository.findAll()).thenReturn(Arrays.asList());
+    void testSaveIndexesName() {
+        when(scrollRepository.save(testScroll)).thenReturn(testScroll);
 
-        List<Scroll> result = scrollService.findAll();
+        scrollService.save(testScroll);
 
-        assertNotNull(result);
-        assertTrue(result.isEmpty());
+        verify(scrollNameIndex).put(1, "Test Scroll");
+    }
+
+    @Test
+    void testDeleteRemovesNameFromIndex() {
+        scrollService.delete(testScroll);
+
+        verify(scrollNameIndex).remove(1);
+        verify(nameAutocompleteIndex).removeScroll(1);
+        verify(scrollSearchCache).evict(testScroll);
+        verify(eventPublisher).publishEvent(new ScrollChangedEvent(1));
     }
 
     @Test
@@ -250,4 +607,28 @@ class ScrollServiceTest {
 
         verify(scrollRepository).delete(nonExistentScroll);
     }
-}
\ No newline at end of file
+
+    private ScrollSummary summary(int id) {
+        return summary(id, LocalDateTime.now());
+    }
+
+    private ScrollSummary summary(int id, LocalDateTime updatedAt) {
+        return new ScrollSummary(id, "Scroll " + id, "testuser", LocalDateTime.now(), updatedAt, id, false);
+    }
+
+    private static ScrollRepository.IdAndName idAndName(int id, String name) {
+        ScrollRepository.IdAndName scroll = mock(ScrollRepository.IdAndName.class);
+        when(scroll.getId()).thenReturn(id);
+        when(scroll.getName()).thenReturn(name);
+        return scroll;
+    }
+
+    // the text index hands its matches over in these batches, one per search, all with the same score
+    @SafeVarargs
+    private void textMatches(String text, List<Integer>... batches) {
+        Iterator<List<Integer>> remaining = List.of(batches).iterator();
+        doAnswer(invocation -> remaining.hasNext()
+                ? remaining.next().stream().map(id -> new TextCursor(1f, id)).toList()
+                : List.of()).when(scrollTextIndex).search(eq(text), any(), anyInt());
+    }
+}
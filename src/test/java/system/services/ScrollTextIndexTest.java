@@ -0,0 +1,151 @@
+package system.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.util.unit.DataSize;
+import system.models.Scroll;
+import system.models.TextCursor;
+import system.repositories.ScrollRepository;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ScrollTextIndexTest {
+
+    @TempDir
+    Path root;
+
+    @Mock
+    private ScrollRepository scrollRepository;
+
+    @Mock
+    private ScrollContentService scrollContentService;
+
+    @Mock
+    private ScrollSearchCache scrollSearchCache;
+
+    private ScrollTextIndex scrollTextIndex;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        scrollTextIndex = new ScrollTextIndex(scrollRepository, scrollContentService, scrollSearchCache, root.toString(),
+                "text/*,application/json", DataSize.ofKilobytes(1));
+
+        store(1, "text/plain", "The dragon breathes fire over the mountain");
+        store(2, "text/markdown", "Notes on fire safety");
+        store(3, "image/png", "dragon fire");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        scrollTextIndex.close();
+    }
+
+    @Test
+    void testSearchMatchesAllWords() {
+        scrollTextIndex.index(1);
+        scrollTextIndex.index(2);
+
+        assertEquals(List.of(1), matches("Dragon FIRE"));
+        assertEquals(2, matches("fire").size());
+        verify(scrollSearchCache, times(2)).evictTextSearches();
+    }
+
+    @Test
+    void testSearchContinuesAfterCursor() {
+        scrollTextIndex.index(1);
+        scrollTextIndex.index(2);
+
+        List<TextCursor> first = scrollTextIndex.search("fire", null, 1);
+        List<TextCursor> second = scrollTextIndex.search("fire", first.get(0), 1);
+
+        assertEquals(1, first.size());
+        assertEquals(1, second.size());
+        assertEquals(Set.of(1, 2), Set.of(first.get(0).id(), second.get(0).id()));
+        assertTrue(scrollTextIndex.search("fire", second.get(0), 1).isEmpty());
+    }
+
+    @Test
+    void testExistingScrollsAreIndexedOnce() throws Exception {
+        when(scrollRepository.findAllIds()).thenReturn(List.of(3));
+
+        scrollTextIndex.indexExistingScrolls();
+        scrollTextIndex.close();
+        // the only scroll is not text, so the index stays empty, yet a restart does not index everything again
+        scrollTextIndex = new ScrollTextIndex(scrollRepository, scrollContentService, scrollSearchCache,
+                root.toString(), "text/*,application/json", DataSize.ofKilobytes(1));
+        scrollTextIndex.indexExistingScrolls();
+
+        verify(scrollRepository, times(1)).findAllIds();
+    }
+
+    @Test
+    void testExistingScrollsAreCommittedTogether() throws Exception {
+        when(scrollRepository.findAllIds()).thenReturn(List.of(1, 2, 3));
+
+        scrollTextIndex.indexExistingScrolls();
+
+        assertEquals(Set.of(1, 2), Set.copyOf(matches("fire")));
+        verify(scrollSearchCache, times(1)).evictTextSearches();
+    }
+
+    @Test
+    void testSearchWithoutWords() {
+        scrollTextIndex.index(1);
+
+        assertTrue(matches("  ").isEmpty());
+    }
+
+    @Test
+    void testNonTextScrollsAreNotIndexed() {
+        scrollTextIndex.index(3);
+
+        assertTrue(matches("dragon").isEmpty());
+    }
+
+    @Test
+    void testReindexReplacesText() {
+        scrollTextIndex.index(1);
+        store(1, "text/plain", "A quiet lake");
+
+        scrollTextIndex.index(1);
+
+        assertTrue(matches("dragon").isEmpty());
+        assertEquals(List.of(1), matches("lake"));
+    }
+
+    @Test
+    void testDeletedScrollIsRemoved() {
+        scrollTextIndex.index(1);
+        when(scrollRepository.findById(1)).thenReturn(Optional.empty());
+
+        scrollTextIndex.onScrollChanged(new ScrollChangedEvent(1));
+
+        assertTrue(matches("dragon").isEmpty());
+    }
+
+    private List<Integer> matches(String text) {
+        return scrollTextIndex.search(text, null, 10).stream().map(TextCursor::id).toList();
+    }
+
+    private void store(int id, String contentType, String text) {
+        Scroll scroll = new Scroll();
+        scroll.setId(id);
+        scroll.setContentType(contentType);
+        scroll.setContentHash("hash-" + id + "-" + text.length());
+        when(scrollRepository.findById(id)).thenReturn(Optional.of(scroll));
+        when(scrollContentService.load(scroll.getContentHash()))
+                .thenReturn(Optional.of(new StoredContent(new ByteArrayResource(text.getBytes()), null, text.length())));
+    }
+}
@@ -0,0 +1,67 @@
+package system.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTest {
+
+    @Test
+    void testExactWhileUnderCapacity() {
+        SpaceSaving sketch = new SpaceSaving(10);
+        sketch.add(1, 3);
+        sketch.add(2, 5);
+        sketch.add(1, 1);
+
+        assertEquals(Set.of(new SpaceSaving.Counter(2, 5, 0), new SpaceSaving.Counter(1, 4, 0)),
+                Set.copyOf(sketch.counters()));
+    }
+
+    @Test
+    void testNewIdTakesOverSmallestCounter() {
+        SpaceSaving sketch = new SpaceSaving(2);
+        sketch.add(1, 5);
+        sketch.add(2, 2);
+        sketch.add(3, 1);
+
+        assertEquals(Set.of(new SpaceSaving.Counter(1, 5, 0), new SpaceSaving.Counter(3, 3, 2)),
+                Set.copyOf(sketch.counters()));
+    }
+
+    @Test
+    void testHeavyHittersSurviveNoise() {
+        SpaceSaving sketch = new SpaceSaving(20);
+        for (int round = 0; round < 1000; round++) {
+            sketch.add(1, 1);
+            if (round % 2 == 0) {
+                sketch.add(2, 1);
+            }
+            // a stream of scrolls downloaded once each
+            sketch.add(1000 + round, 1);
+        }
+
+        Map<Integer, SpaceSaving.Counter> counters = sketch.counters().stream()
+                .collect(Collectors.toMap(SpaceSaving.Counter::id, Function.identity()));
+        assertTrue(counters.containsKey(1));
+        assertTrue(counters.containsKey(2));
+        assertTrue(counters.get(1).count() > counters.get(2).count());
+        assertTrue(counters.get(1).count() >= 1000);
+        assertTrue(counters.get(1).count() - counters.get(1).error() <= 1000);
+    }
+
+    @Test
+    void testRemove() {
+        SpaceSaving sketch = new SpaceSaving(10);
+        sketch.add(1, 3);
+        sketch.add(2, 5);
+
+        sketch.remove(2);
+
+        assertEquals(Set.of(new SpaceSaving.Counter(1, 3, 0)), Set.copyOf(sketch.counters()));
+    }
+}
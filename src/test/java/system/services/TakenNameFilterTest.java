@@ -0,0 +1,91 @@
+package system.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import system.repositories.ScrollRepository;
+import system.repositories.UserRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TakenNameFilterTest {
+
+    @Mock
+    private ScrollRepository scrollRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private TakenNameFilter takenNameFilter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testEverythingMightBeTakenBeforeRebuild() {
+        assertTrue(takenNameFilter.mightHaveScroll("Fire Scroll"));
+        assertTrue(takenNameFilter.mightHaveUser("alice"));
+    }
+
+    @Test
+    void testRebuildLoadsStoredNames() {
+        ScrollRepository.IdAndName scroll = mock(ScrollRepository.IdAndName.class);
+        when(scroll.getName()).thenReturn("Fire Scroll");
+        when(scrollRepository.findAllNames()).thenReturn(List.of(scroll));
+        when(userRepository.findAllUsernames()).thenReturn(List.of("alice"));
+
+        takenNameFilter.rebuild();
+
+        assertTrue(takenNameFilter.mightHaveScroll("fire scroll"));
+        assertTrue(takenNameFilter.mightHaveUser("Alice"));
+        assertFalse(takenNameFilter.mightHaveUser("bob"));
+    }
+
+    @Test
+    void testAddedNamesAreTaken() {
+        takenNameFilter.rebuild();
+
+        takenNameFilter.addScroll("Water Scroll");
+        takenNameFilter.addUser("bob");
+
+        assertTrue(takenNameFilter.mightHaveScroll("Water Scroll"));
+        assertTrue(takenNameFilter.mightHaveUser("bob"));
+    }
+
+    @Test
+    void testRebuildKeepsNamesOfUncommittedSaves() {
+        takenNameFilter.rebuild();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // the save is still running when the rebuild reads the names
+            takenNameFilter.addScroll("Water Scroll");
+            takenNameFilter.rebuild();
+
+            assertTrue(takenNameFilter.mightHaveScroll("Water Scroll"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testRebuildKeepsNamesAddedWhileLoading() {
+        when(userRepository.findAllUsernames()).thenAnswer(invocation -> {
+            takenNameFilter.addUser("bob");
+            return List.of("alice");
+        });
+
+        takenNameFilter.rebuild();
+
+        assertTrue(takenNameFilter.mightHaveUser("bob"));
+        assertTrue(takenNameFilter.mightHaveUser("alice"));
+    }
+}
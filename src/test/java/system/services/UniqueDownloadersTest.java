@@ -0,0 +1,102 @@
+package system.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(UniqueDownloaders.class)
+class UniqueDownloadersTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UniqueDownloaders uniqueDownloaders;
+
+    @Test
+    void testCountsEachUserOnce() {
+        uniqueDownloaders.record(1, "alice");
+        uniqueDownloaders.record(1, "alice");
+        uniqueDownloaders.record(1, "bob");
+        uniqueDownloaders.record(2, "alice");
+        uniqueDownloaders.record(3, null);
+
+        // before and after the flush
+        assertEquals(Map.of(1, 2L, 2, 1L), uniqueDownloaders.count(List.of(1, 2, 3), 1));
+        uniqueDownloaders.flush();
+        assertEquals(Map.of(1, 2L, 2, 1L), uniqueDownloaders.count(List.of(1, 2, 3), 1));
+    }
+
+    @Test
+    void testFlushMergesIntoStoredSketch() {
+        uniqueDownloaders.record(1, "alice");
+        uniqueDownloaders.flush();
+        uniqueDownloaders.record(1, "alice");
+        uniqueDownloaders.record(1, "bob");
+        uniqueDownloaders.flush();
+
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from download_uniques", Integer.class));
+        assertEquals(Map.of(1, 2L), uniqueDownloaders.countEver(List.of(1)));
+    }
+
+    @Test
+    void testMergesAcrossDays() {
+        store(1, LocalDate.now().minusDays(30), "alice", "carol");
+        store(1, LocalDate.now().minusDays(3), "alice", "bob");
+        uniqueDownloaders.record(1, "bob");
+        uniqueDownloaders.record(1, "dave");
+
+        assertEquals(Map.of(1, 3L), uniqueDownloaders.count(List.of(1), 7));
+        assertEquals(Map.of(1, 4L), uniqueDownloaders.countEver(List.of(1)));
+    }
+
+    @Test
+    void testOldDaysAreRolledUp() {
+        store(1, LocalDate.now().minusDays(60), "alice", "carol");
+        store(1, LocalDate.now().minusDays(40), "alice", "erin");
+        store(1, LocalDate.now().minusDays(3), "alice", "bob");
+
+        uniqueDownloaders.flush();
+
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from download_uniques", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from download_uniques_rollup", Integer.class));
+        assertEquals(Map.of(1, 2L), uniqueDownloaders.count(List.of(1), 7));
+        assertEquals(Map.of(1, 4L), uniqueDownloaders.countEver(List.of(1)));
+    }
+
+    @Test
+    void testRollUpMergesIntoExistingRollup() {
+        store(1, LocalDate.now().minusDays(60), "alice");
+        uniqueDownloaders.rollUp(LocalDate.now().minusDays(50));
+        store(1, LocalDate.now().minusDays(40), "alice", "bob");
+
+        uniqueDownloaders.rollUp(LocalDate.now().minusDays(30));
+
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from download_uniques", Integer.class));
+        assertEquals(Map.of(1, 2L), uniqueDownloaders.countEver(List.of(1)));
+    }
+
+    @Test
+    void testCountWithoutScrolls() {
+        assertEquals(Map.of(), uniqueDownloaders.count(List.of(), 7));
+    }
+
+    private void store(int scrollId, LocalDate day, String... usernames) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (String username : usernames) {
+            sketch.add(username);
+        }
+        jdbcTemplate.update("insert into download_uniques (scroll_id, day, registers) values (?, ?, ?)",
+                scrollId, Date.valueOf(day), sketch.toBytes());
+    }
+}
@@ -0,0 +1,243 @@
+package system.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+import system.models.Scroll;
+import system.models.UploadSession;
+import system.models.User;
+import system.repositories.UploadSessionRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UploadSessionServiceTest {
+
+    @TempDir
+    Path root;
+
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Mock
+    private ScrollService scrollService;
+
+    @Mock
+    private ScrollContentService scrollContentService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UploadSessionService uploadSessionService;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        uploadSessionService = new UploadSessionService(uploadSessionRepository, scrollService, scrollContentService,
+                transactionManager, root.toString(), DataSize.ofBytes(20), Duration.ofDays(1), 2);
+
+        testUser = new User();
+        testUser.setId(1);
+        testUser.setUsername("testuser");
+
+        when(uploadSessionRepository.save(any(UploadSession.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void testCreate() throws Exception {
+        UploadSession session = uploadSessionService.create(testUser, "Test Scroll", "test.txt", "text/plain", null);
+
+        assertNotNull(session.getId());
+        assertEquals(0, session.getReceivedBytes());
+        assertTrue(Files.exists(root.resolve(session.getId())));
+    }
+
+    @Test
+    void testCreateBeyondSessionLimit() throws Exception {
+        when(uploadSessionRepository.countByUserId(1)).thenReturn(2L);
+
+        assertThrows(UploadSessionLimitException.class,
+                () -> uploadSessionService.create(testUser, "Test Scroll", "test.txt", "text/plain", null));
+
+        verify(uploadSessionRepository, never()).save(any(UploadSession.class));
+        try (Stream<Path> files = Files.list(root)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testAppendChunks() throws Exception {
+        UploadSession session = create();
+
+        assertEquals(5, uploadSessionService.append(session, 0, stream("test ")));
+        assertEquals(12, uploadSessionService.append(session, 5, stream("content")));
+
+        assertEquals("test content", Files.readString(root.resolve(session.getId())));
+        assertEquals(12, session.getReceivedBytes());
+    }
+
+    @Test
+    void testAppendWrongOffset() throws Exception {
+        UploadSession session = create();
+        uploadSessionService.append(session, 0, stream("test "));
+
+        UploadOffsetMismatchException e = assertThrows(UploadOffsetMismatchException.class,
+                () -> uploadSessionService.append(session, 0, stream("test ")));
+
+        assertEquals(5, e.getExpectedOffset());
+        assertEquals("test ", Files.readString(root.resolve(session.getId())));
+    }
+
+    @Test
+    void testAppendAfterBrokenChunk() throws Exception {
+        UploadSession session = create();
+        uploadSessionService.append(session, 0, stream("test "));
+
+        // the connection drops after part of the chunk was written
+        InputStream broken = new InputStream() {
+            private int sent;
+
+            @Override
+            public int read() throws IOException {
+                if (sent++ < 3) {
+                    return 'x';
+                }
+                throw new IOException("connection reset");
+            }
+        };
+        assertThrows(IOException.class, () -> uploadSessionService.append(session, 5, broken));
+        assertEquals(5, session.getReceivedBytes());
+
+        uploadSessionService.append(session, 5, stream("content"));
+
+        assertEquals("test content", Files.readString(root.resolve(session.getId())));
+    }
+
+    @Test
+    void testAppendPastMaxSize() throws Exception {
+        UploadSession session = create();
+        uploadSessionService.append(session, 0, stream("test content"));
+
+        assertThrows(UploadTooLargeException.class,
+                () -> uploadSessionService.append(session, 12, stream(" that is too long")));
+
+        assertEquals(12, session.getReceivedBytes());
+        assertEquals("test content", Files.readString(root.resolve(session.getId())));
+        assertEquals(20, uploadSessionService.append(session, 12, stream(" fits in")));
+    }
+
+    @Test
+    void testAppendToEndedSession() throws Exception {
+        UploadSession session = create();
+        when(uploadSessionRepository.findById(session.getId())).thenReturn(Optional.empty());
+
+        assertThrows(UploadSessionNotFoundException.class,
+                () -> uploadSessionService.append(session, 0, stream("test ")));
+    }
+
+    @Test
+    void testFinish() throws Exception {
+        UploadSession session = create();
+        uploadSessionService.append(session, 0, stream("test content"));
+        Path file = root.resolve(session.getId());
+        StagedContent staged = new StagedContent(root.resolve(session.getId() + ".finishing"), 12, "abc123");
+        when(scrollContentService.stage(staged.file(), "text/plain")).thenAnswer(invocation -> {
+            assertEquals("test content", Files.readString(staged.file()));
+            return staged;
+        });
+        when(scrollService.save(any(Scroll.class), eq(staged))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Scroll scroll = uploadSessionService.finish(session);
+
+        assertEquals("Test Scroll", scroll.getName());
+        assertEquals("test.txt", scroll.getFileName());
+        assertEquals(testUser, scroll.getUser());
+        verify(uploadSessionRepository).delete(session);
+        verify(transactionManager).commit(any());
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(staged.file()));
+    }
+
+    @Test
+    void testFailedFinishKeepsSession() throws Exception {
+        UploadSession session = create();
+        uploadSessionService.append(session, 0, stream("test content"));
+        Path file = root.resolve(session.getId());
+        StagedContent staged = new StagedContent(root.resolve(session.getId() + ".finishing"), 12, "abc123");
+        when(scrollContentService.stage(staged.file(), "text/plain")).thenReturn(staged);
+        when(scrollService.save(any(Scroll.class), eq(staged))).thenThrow(new IllegalStateException("name taken"));
+
+        assertThrows(IllegalStateException.class, () -> uploadSessionService.finish(session));
+
+        verify(uploadSessionRepository, never()).delete(any(UploadSession.class));
+        verify(transactionManager).rollback(any());
+        assertEquals("test content", Files.readString(file));
+        assertFalse(Files.exists(staged.file()));
+        // the session carries on where it was
+        assertEquals(17, uploadSessionService.append(session, 12, stream(" more")));
+    }
+
+    @Test
+    void testFinishEndedSession() {
+        UploadSession session = UploadSession.builder().id("gone").build();
+
+        assertThrows(UploadSessionNotFoundException.class, () -> uploadSessionService.finish(session));
+        verifyNoInteractions(scrollService);
+    }
+
+    @Test
+    void testSweepExpired() throws Exception {
+        UploadSession stale = create();
+        stale.setUpdatedAt(LocalDateTime.now().minusDays(2));
+        UploadSession resumed = create();
+        UploadSession current = UploadSession.builder().id(resumed.getId()).updatedAt(LocalDateTime.now()).build();
+        when(uploadSessionRepository.findByUpdatedAtBefore(any())).thenReturn(List.of(stale, resumed));
+        // a chunk landed after the query
+        when(uploadSessionRepository.findById(resumed.getId())).thenReturn(Optional.of(current));
+
+        uploadSessionService.sweepExpired();
+
+        verify(uploadSessionRepository).delete(stale);
+        verify(uploadSessionRepository, never()).delete(current);
+        assertFalse(Files.exists(root.resolve(stale.getId())));
+        assertTrue(Files.exists(root.resolve(resumed.getId())));
+    }
+
+    @Test
+    void testAbort() throws Exception {
+        UploadSession session = create();
+
+        uploadSessionService.abort(session);
+
+        assertFalse(Files.exists(root.resolve(session.getId())));
+        verify(uploadSessionRepository).delete(session);
+    }
+
+    private UploadSession create() throws Exception {
+        UploadSession session = uploadSessionService.create(testUser, "Test Scroll", "test.txt", "text/plain", null);
+        when(uploadSessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
+        when(uploadSessionRepository.existsById(session.getId())).thenReturn(true);
+        return session;
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes());
+    }
+}
@@ -26,6 +26,12 @@ class UserServiceTest {
     @Mock
     private BCryptPasswordEncoder passwordEncoder;
 
+    @Mock
+    private TakenNameFilter takenNameFilter;
+
+    @Mock
+    private NameAutocompleteIndex nameAutocompleteIndex;
+
     @InjectMocks
     private UserService userService;
 
@@ -63,6 +69,7 @@ class UserServiceTest {
 
     @Test
     void testUserExists() {
+        when(takenNameFilter.mightHaveUser("testuser")).thenReturn(true);
         when(userRepository.findByUsernameIgnoreCase("testuser")).thenReturn(Optional.of(testUser));
 
         boolean result = userService.userExists("testuser");
@@ -72,6 +79,7 @@ class UserServiceTest {
 
     @Test
     void testUserExists_NotFound() {
+        when(takenNameFilter.mightHaveUser("nonexistent")).thenReturn(true);
         when(userRepository.findByUsernameIgnoreCase("nonexistent")).thenReturn(Optional.empty());
 
         boolean result = userService.userExists("nonexistent");
@@ -79,6 +87,14 @@ class UserServiceTest {
         assertFalse(result);
     }
 
+    @Test
+    void testUserExists_RuledOutByFilter() {
+        when(takenNameFilter.mightHaveUser("newuser")).thenReturn(false);
+
+        assertFalse(userService.userExists("newuser"));
+        verify(userRepository, never()).findByUsernameIgnoreCase(any());
+    }
+
     @Test
     void testSaveNewUser() {
         User newUser = new User();
@@ -94,6 +110,7 @@ class UserServiceTest {
         assertEquals("newuser", result.getUsername());
         verify(passwordEncoder).encode("password");
         verify(userRepository).save(newUser);
+        verify(takenNameFilter).addUser("newuser");
     }
 
     @Test